@@ -1,17 +1,29 @@
 package main.java.controller;
 
 import java.awt.Color;
-import main.java.model.Exception.NotFound;
+import java.util.BitSet;
+import java.util.Arrays;
+import javax.swing.JButton;
 import main.java.model.Inventory;
-import main.java.model.storage.Value;
-import main.java.model.util.Couple;
-import main.java.model.util.Objet;
+import main.java.model.storage.DB;
+import main.java.model.util.CraftOrder;
+import main.java.model.util.CraftPlanner;
+import main.java.model.util.CraftabilityIndex;
 import main.java.model.util.Recipe;
 import main.java.view.CraftView;
 
 public class CraftController {
+    // Les crafts simples passent avant les commandes "Max" en attente
+    private static final int SINGLE_CRAFT_PRIORITY = 1;
+    private static final int MAX_CRAFT_PRIORITY = 0;
+
     private final CraftView view; // La vue associée à la fabrication (CraftView)
     private final Inventory playerInventory; // L'inventaire du joueur
+    private final CraftPlanner planner; // Calcule les fabrications intermédiaires
+    private final CraftabilityIndex craftability; // Les recettes fabricables, suivies au fil de l'inventaire
+    private final Color[] shownColors; // Couleur affichée par index de recette
+    private final String[] shownTexts; // Texte affiché par index de recette
+    private long shownVersion = -1; // Version de l'inventaire affichée
 
     /**
      * Constructeur de la classe CraftController.
@@ -23,26 +35,83 @@ public class CraftController {
         this.view.updateInventory(playerInventory.getInventoryContent()); // Met à jour l'inventaire dans la vue
 
         this.playerInventory = playerInventory; // L'inventaire du joueur
+        this.planner = new CraftPlanner(playerInventory);
+        this.craftability = new CraftabilityIndex(playerInventory);
+        this.shownColors = new Color[DB.recipeMap.length()];
+        this.shownTexts = new String[DB.recipeMap.length()];
 
         setHandler(); // Configure les gestionnaires d'événements pour les boutons de fabrication
+        Timeline.setCraftListener(this::update); // Met à jour la vue à chaque livraison
         update(); // Met à jour l'interface avec les informations actuelles
     }
 
     /**
      * Met à jour l'interface avec les informations actuelles.
-     * - Vérifie si les objets peuvent être fabriqués et met à jour la couleur des
-     * boutons
-     * - Met à jour l'inventaire
+     * - Met à jour la couleur des boutons dont l'état a changé (orange si il faut
+     * d'abord fabriquer des ingrédients)
+     * - Met à jour l'inventaire s'il a changé
      */
     private void update() {
-        // Met à jour la couleur des boutons en fonction de si la recette peut être
-        // fabriquée
-        this.view.getButtons().forEach((recette, bouton) -> {
-            bouton.setBackground(canCraft(recette) ? Color.green : Color.red);
+        SimulationClock.postView(this, () -> {
+            // les recettes devenues fabricables ou non sont données par l'index, et
+            // les plans qui changent sont ceux des recettes qui utilisent, même en
+            // passant par des fabrications intermédiaires, un objet changé
+            BitSet changed = craftability.takeChanged();
+            BitSet items = planner.takeChangedItems();
+            for (int item = items.nextSetBit(0); item >= 0; item = items.nextSetBit(item + 1)) {
+                changed.or(DB.recipeMap.getDependentsOf(DB.item[item]));
+            }
+            for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+                updateButton(i);
+            }
+
+            // Met à jour l'avancement de chaque emplacement de craft
+            CraftOrder[] slots = Timeline.getCraftSlots();
+            StringBuilder progress = new StringBuilder("<html>");
+            for (int i = 0; i < slots.length; i++) {
+                progress.append("Craft ").append(i + 1).append(" : ")
+                        .append(slots[i] == null ? "libre" : slots[i].toString()).append("<br>");
+            }
+            int waiting = Timeline.getCraftOrders().size() - (int) Arrays.stream(slots).filter(o -> o != null).count();
+            progress.append(waiting).append(" en attente</html>");
+            this.view.setProgress(progress.toString());
+
+            // Met à jour l'inventaire dans la vue
+            if (shownVersion != playerInventory.getVersion()) {
+                shownVersion = playerInventory.getVersion();
+                this.view.updateInventory(this.playerInventory.getInventoryContent());
+            }
         });
+    }
 
-        // Met à jour l'inventaire dans la vue
-        this.view.updateInventory(this.playerInventory.getInventoryContent());
+    /**
+     * Met à jour la couleur et le texte du bouton d'une recette, seulement s'ils
+     * ont changé.
+     * 
+     * @param index L'index de la recette dans DB.recipeMap
+     */
+    private void updateButton(int index) {
+        Recipe recette = DB.recipeMap.get(index);
+        Color color;
+        String text = "Craft";
+        if (craftability.isCraftable(index)) {
+            color = Color.green;
+        } else {
+            CraftPlanner.Plan plan = planner.plan(recette);
+            if (plan.isFeasible()) {
+                color = Color.orange;
+                text = "Craft (via " + plan.getSubCrafts() + " sub-crafts)";
+            } else {
+                color = Color.red;
+            }
+        }
+        if (color.equals(shownColors[index]) && text.equals(shownTexts[index]))
+            return;
+        shownColors[index] = color;
+        shownTexts[index] = text;
+        JButton bouton = view.getButtons().get(recette);
+        bouton.setBackground(color);
+        bouton.setText(text);
     }
 
     /**
@@ -52,48 +121,54 @@ public class CraftController {
         // Ajoute un gestionnaire d'événements pour chaque bouton de fabrication
         this.view.getButtons().forEach((recette, bouton) -> {
             bouton.addActionListener(e -> {
-                if (canCraft(recette)) { // Vérifie si la fabrication est possible
-                    // Si c'est possible, retire les ingrédients nécessaires de l'inventaire
-                    for (Couple<Objet, Integer> couple : recette.getIngredients()) {
-                        try {
-                            playerInventory.removeItem(couple.getKey(), couple.getValue());
-                        } catch (NotFound ex) {
-                            Value.printError("Not Found : " + couple.getKey());
-                        }
-                    }
-
-                    // Met à jour l'inventaire après la perte des ingrédients
-                    update();
-
-                    // Ajoute une tâche à la timeline pour fabriquer l'objet (le résultat de la
-                    // recette)
-                    Timeline.addCraft(recette.getResult(), recette.getTime(), () -> {
-                        playerInventory.addItem(recette.getResult(), recette.getResultQuantity());
-                        // Met à jour l'inventaire avec le résultat de la fabrication
-                        update();
-                    });
+                // Si la fabrication est possible, retire d'un coup les ingrédients nécessaires
+                if (playerInventory.tryConsume(recette, 1)) {
+                    craft(recette, 1, SINGLE_CRAFT_PRIORITY);
+                } else {
+                    craftWithPlan(planner.plan(recette));
                 }
             });
         });
+
+        // Le bouton "Max" retire les ingrédients d'autant de fabrications que possible
+        this.view.getMaxButtons().forEach((recette, bouton) -> {
+            bouton.addActionListener(e -> {
+                int count = playerInventory.consumeAsManyAsPossible(recette, Integer.MAX_VALUE);
+                if (count > 0)
+                    craft(recette, count, MAX_CRAFT_PRIORITY);
+            });
+        });
     }
 
     /**
-     * Vérifie si une recette peut être fabriquée en fonction des ingrédients
-     * disponibles dans l'inventaire.
+     * Commande plusieurs fabrications d'une recette dont les ingrédients ont déjà
+     * été retirés : la timeline les exécute comme une seule commande et livre
+     * les résultats par paquets dans l'inventaire du joueur.
      * 
-     * @param recette La recette à vérifier
-     * @return true si la recette peut être fabriquée, false sinon
+     * @param recette  La recette
+     * @param count    Le nombre de fabrications
+     * @param priority La priorité de la commande dans la file d'attente
      */
-    private boolean canCraft(Recipe recette) {
-        boolean canCraft = true;
-        // Vérifie si l'inventaire contient suffisamment d'ingrédients
-        for (Couple<Objet, Integer> couple : recette.getIngredients()) {
-            if (playerInventory.getQuantityOf(couple.getKey()) < couple.getValue()) {
-                canCraft = false; // Impossible de fabriquer si un ingrédient est manquant
-                break;
-            }
-        }
-        return canCraft;
+    private void craft(Recipe recette, int count, int priority) {
+        Timeline.addCraft(new CraftOrder(playerInventory, recette, count, priority));
+        // Met à jour l'inventaire après la perte des ingrédients
+        update();
+    }
+
+    /**
+     * Fabrique une recette en passant par ses fabrications intermédiaires : tous
+     * les objets du plan sont retirés d'un coup puis le résultat et les objets
+     * fabriqués en trop sont rendus à la fin de la durée totale du plan.
+     * 
+     * @param plan Le plan de fabrication
+     */
+    private void craftWithPlan(CraftPlanner.Plan plan) {
+        if (!plan.isFeasible() || !playerInventory.tryConsume(plan.getConsumed()))
+            return;
+        Recipe recette = plan.getTarget();
+        Timeline.addCraft(new CraftOrder(playerInventory, recette.getResult(), recette.getResultQuantity(),
+                plan.getTime(), 1, plan.getConsumed().clone(), plan.getLeftovers().clone(), SINGLE_CRAFT_PRIORITY));
+        update();
     }
 
     /**
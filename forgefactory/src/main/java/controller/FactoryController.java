@@ -1,22 +1,21 @@
 package main.java.controller;
 
+import java.util.ArrayList;
+import java.util.List;
 import javax.swing.JButton;
-import main.java.model.Exception.NotFound;
+import javax.swing.JCheckBox;
 import main.java.model.Factory;
 import main.java.model.Inventory;
 import main.java.model.Money;
 import main.java.model.storage.DB;
-import main.java.model.storage.Value;
 import main.java.model.util.Couple;
-import main.java.model.util.Objet;
 import main.java.model.util.Recipe;
-import main.java.model.util.Task;
 import main.java.view.FactoryView;
 
 public class FactoryController extends MachineController {
     private final Factory model; // Le modèle de la machine (Factory)
     private final FactoryView view; // La vue associée à la machine (FactoryView)
-    private Task task; // La tâche qui sera ajoutée à la timeline pour la fabrication
+    private final TaskHandle task; // La tâche périodique de fabrication
 
     /**
      * Constructeur de la classe FactoryController.
@@ -31,19 +30,24 @@ public class FactoryController extends MachineController {
         this.view = ((FactoryView) super.getView()); // Récupère la vue associée
 
         // Définir la description de la recette actuellement active
-        this.setDescription("Recette : " + model.getRecipe().toString());
+        updateDescription();
 
         setHandler(); // Configure les gestionnaires d'événements pour les boutons
         view.enableButton(DB.recipeMap.getIndexOf(model.getRecipe())); // Active le bouton correspondant à la recette
                                                                        // active
 
-        // Crée une tâche qui simule la fabrication d'un objet en fonction de la recette
-        task = new Task(0, () -> {
+        // Crée la tâche périodique qui simule la fabrication d'un objet en fonction de
+        // la recette, la période suit la recette active. Le calcul ne touche qu'à la
+        // machine et à son inventaire, la vue est mise à jour à la validation.
+        task = Timeline.addParallelPeriodic(model::getCycleTime, () -> {
             // si elle est fragile et pas casser on a un probabilité de 10% quelle casse
             if (model.getFragile() && !model.getBreaked()) {
-                if (Math.random() <= 0.1) {
+                if (model.rollBreak()) {
                     model.setBreaked(true);
-                    setReparation();
+                    return () -> {
+                        setReparation();
+                        sleepUntilUnblocked();
+                    };
                 }
             }
 
@@ -51,61 +55,103 @@ public class FactoryController extends MachineController {
             if (model.getFragile() && model.getBreaked()) {
                 // ne rien faire
             } else if (model.getRecipe() != null) {
-                if (canCraft()) {
-                    removeFromInventory(); // Retirer les ingrédients de l'inventaire
+                // Retirer les ingrédients de l'inventaire, tous ou aucun
+                if (canCraft() && (!model.isMultiRecipe() || model.isWanted(model.getRecipe()))
+                        && model.getInventory().tryConsume(model.getRecipe(), 1)) {
                     model.setDurability(model.getDurability() - 1); // Décrémenter la durabilité de la machine
                     // Ajouter l'objet fabriqué à l'inventaire de la machine
                     model.getInventory().addItem(model.getRecipe().getResult(),
                             model.getRecipe().getResultQuantity());
-                    notifyView(); // Mettre à jour la vue
+                    if (!model.isMultiRecipe())
+                        return this::notifyView; // Mettre à jour la vue
+                    // choisir la recette du prochain cycle, la période suit la recette
+                    model.selectNextRecipe();
+                    return () -> {
+                        updateDescription();
+                        notifyView();
+                    };
                 }
+                // une autre recette de la liste peut tourner
+                if (model.getDurability() != 0 && model.selectNextRecipe())
+                    return this::restartCycle;
             }
-            task.setTime(model.getRecipe().getTime()); // Définir le temps de fabrication de la tâche
-            Timeline.add(task); // Ajouter la tâche à la timeline
+            // la machine est bloquée, elle s'endort jusqu'à ce que ça change
+            return this::sleepUntilUnblocked;
         });
-
-        Timeline.add(task); // Ajouter la tâche initiale à la timeline
         this.model.setTask(task); // Associer la tâche à la machine
         super.applyBonus(); // Appliquer les bonus à la machine
     }
 
     /**
-     * Vérifie si la machine peut fabriquer l'objet en fonction de la recette.
+     * Vérifie si la machine peut fabriquer l'objet de la recette : place dans la
+     * sortie pour le résultat et durabilité. Les ingrédients sont vérifiés et
+     * retirés d'un coup par {@link Inventory#tryConsume}.
      * 
      * @return true si la fabrication est possible, sinon false
      */
     private boolean canCraft() {
-        boolean result = true;
-        // Vérifie si l'inventaire de la machine a suffisamment d'espace pour les objets
-        // fabriqués
-        if (model.getInventory().getCurrentCount() + model.getRecipe().getResultQuantity() - model.getRecipe().sum() > model.getInventory()
-                .getCapacity()
-                || model.getDurability() == 0)
-            return false;
+        return model.hasOutputSpace(model.getRecipe()) && model.getDurability() != 0;
+    }
 
-        // Vérifie si les ingrédients nécessaires sont présents dans l'inventaire de la
-        // machine
-        for (Couple<Objet, Integer> couple : model.getRecipe().getIngredients()) {
-            if (model.getInventory().getQuantityOf(couple.getKey()) < couple.getValue()) {
-                result = false; // La fabrication n'est pas possible si les ingrédients sont manquants
-            }
+    /**
+     * Endort la machine bloquée en attendant ce qui lui manque : une réparation
+     * si elle est cassée ou usée, des ingrédients s'il en manque, que sa sortie
+     * soit vidée si elle est pleine. Sans recette, seul un changement de recette
+     * la relance.
+     */
+    private void sleepUntilUnblocked() {
+        if ((model.getFragile() && model.getBreaked()) || model.getDurability() == 0) {
+            sleep(false, false, true);
+            return;
+        }
+        Recipe recipe = model.getRecipe();
+        if (recipe == null) {
+            sleep(false, false, false);
+            return;
         }
-        return result;
+        if (model.isMultiRecipe()) {
+            // n'importe quel objet ou place libérée peut débloquer une recette de la liste
+            sleep(true, true, false);
+            return;
+        }
+        boolean noSpace = !model.hasOutputSpace(recipe);
+        boolean missing = model.getInventory().getCraftableCount(recipe) == 0;
+        sleep(missing, noSpace, false);
     }
 
     /**
-     * Retire les ingrédients nécessaires à la fabrication de l'inventaire de la
-     * machine.
+     * Recommence un cycle complet. En mode multi-recettes, la recette est
+     * d'abord choisie à nouveau dans la liste.
      */
-    private void removeFromInventory() {
-        try {
-            // Retirer chaque ingrédient de l'inventaire de la machine
-            for (Couple<Objet, Integer> couple : model.getRecipe().getIngredients()) {
-                model.getInventory().removeItem(couple.getKey(), couple.getValue());
-            }
-        } catch (NotFound e) {
-            Value.printError("Un item est manquant");
-        }
+    @Override
+    protected void restartCycle() {
+        if (model.isMultiRecipe() && model.selectNextRecipe())
+            updateDescription();
+        super.restartCycle();
+    }
+
+    /**
+     * Les usines de la même recette, avec les mêmes bonus et au même rythme,
+     * sont regroupées si elles ont des ingrédients pour autant de cycles. Celles
+     * qui changent de recette toutes seules ne le sont pas.
+     */
+    @Override
+    String getAggregationKey() {
+        if (model.getRecipe() == null || model.isMultiRecipe())
+            return null;
+        return "factory:" + DB.recipeMap.getIndexOf(model.getRecipe()) + ":" + model.getEffectiveCycleTime() + ":"
+                + getBonusKey() + ":" + model.getInventory().getCraftableCount(model.getRecipe());
+    }
+
+    /**
+     * Met à jour la description : la recette active, et la liste de recettes en
+     * mode multi-recettes.
+     */
+    private void updateDescription() {
+        String description = "Recette : " + model.getRecipe().toString();
+        if (model.isMultiRecipe())
+            description += " (auto : " + model.getRecipeList().size() + " recettes)";
+        this.setDescription(description);
     }
 
     /**
@@ -122,10 +168,29 @@ public class FactoryController extends MachineController {
                 // Active uniquement le bouton de la recette sélectionnée
                 couple.getValue().setEnabled(false);
                 this.model.setRecipe(couple.getKey()); // Change la recette active dans le modèle
-                this.setDescription("Recette : " + couple.getKey().toString()); // Met à jour la description de la
-                                                                                // recette
-                task.setTime(couple.getKey().getTime()); // Met à jour le temps de fabrication
+                updateDescription(); // Met à jour la description de la recette
+                restartCycle(); // Recommence le cycle avec la nouvelle recette
+                updateProduction();
+            });
+        }
+
+        // Les cases "auto" ajoutent ou retirent une recette de la liste de
+        // l'usine, dans l'ordre où elles sont cochées
+        for (Couple<Recipe, JCheckBox> couple : view.getAutoBoxes()) {
+            couple.getValue().addActionListener(e -> {
+                List<Recipe> recipes = new ArrayList<>(model.getRecipeList());
+                if (couple.getValue().isSelected()) {
+                    recipes.add(couple.getKey());
+                } else {
+                    recipes.remove(couple.getKey());
+                }
+                model.setRecipeList(recipes);
+                view.showRecipeList(recipes);
+                restartCycle();
+                updateProduction();
+                updateDescription();
             });
         }
+        view.showRecipeList(model.getRecipeList());
     }
 }
@@ -2,6 +2,7 @@ package main.java.controller;
 
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.Arrays;
 import javax.swing.JLabel;
 import main.java.model.Harvester;
 import main.java.model.Map;
@@ -45,7 +46,7 @@ public class GameController {
         }
 
         // Initialisation de la vue du jeu
-        this.view = new GameView(frame, map.getRepresentativeMap(), restoration);
+        this.view = new GameView(frame, map, restoration);
 
         // Initialisation du contrôleur d'inventaire
         this.inventoryController = new InventoryController(this.playerController.getInventory());
@@ -54,23 +55,28 @@ public class GameController {
         this.craftController = new CraftController(
                 this.playerController.getInventory());
 
-        // Affectation du joueur à la valeur statique
+        // Affectation du joueur et de la carte aux valeurs statiques
         Value.player = this.playerController;
+        Value.map = this.map;
 
         // Initialisation du joueur dans la carte
         this.playerController.initPlayer(map.getSpawn(), map);
-        ((MarketController)this.map.getClickableMap().get(map.getMarket())).updateView();
+        ((MarketController) this.map.getClickable(map.getMarket().getRow(), map.getMarket().getCol())).updateView();
 
         // Affichage d'informations de debug dans la console
-        Value.print("\nList de la map d'objet à list \n" + DB.objetToInt);
-        Value.print("\nList de la map de list à objet \n" + DB.intToObjet);
-        Value.print("\nLa taille de la map en hauteur : " + map.getRepresentativeMap().length);
-        Value.print("\nLa taille de la map en largeur : " + map.getRepresentativeMap()[0].length);
+        Value.print("\nLa liste des objets par id \n" + Arrays.toString(DB.item));
+        Value.print("\nLa liste des objets récoltés par ressource \n" + Arrays.toString(DB.resourceItem));
+        Value.print("\nLa taille de la map en hauteur : " + map.getRows());
+        Value.print("\nLa taille de la map en largeur : " + map.getCols());
         Value.print("\nJoueur : " + map.getPlayer());
-        Value.print("\nLa liste des objet à l'id \n" + DB.objetToInt);
-        Value.print("\nLa liste des id à l'objet \n" + DB.intToList);
+        Value.print("\nLa liste des ressources par id \n" + Arrays.toString(DB.resources));
         Value.print("\nLa liste des recettes \n" + DB.recipeMap);
 
+        // Regroupe régulièrement les machines identiques dont le joueur ne se sert
+        // pas, pour les simuler ensemble
+        Timeline.addPeriodic(() -> Value.aggregationPeriod,
+                () -> MachineAggregate.merge(this.map.getMachines()));
+
         // Initialisation des gestionnaires de boutons et de cellules
         setButtonsHandler();
         setCellHandler();
@@ -85,7 +91,8 @@ public class GameController {
      * @param toy   La position d'arrivée en y
      */
     public void movePlayer(int fromx, int fromy, int tox, int toy) {
-        this.view.move(fromx, fromy, tox, toy);
+        // chaque pas doit être dessiné, on ne regroupe pas ces mises à jour
+        SimulationClock.postView(null, () -> this.view.move(fromx, fromy, tox, toy));
     }
 
     /**
@@ -149,7 +156,7 @@ public class GameController {
                     public void mouseEntered(MouseEvent e) {
                         // Si on est en mode placement et que la cellule est vide, on affiche un aperçu
                         // de l'objet à placer
-                        if (map.getIsPlacing() && map.getRepresentativeMap()[localRow][localCol] == ResourceList.NULL
+                        if (map.getIsPlacing() && map.getCell(localRow, localCol) == ResourceList.NULL
                                 && (map.getPlayer().getRow() != localRow || map.getPlayer().getCol() != localCol)) {
                             ResourceList type = map.getToPlace() instanceof Harvester ? ResourceList.HARVESTER : ResourceList.FACTORY;
                             cell.setIcon(view.getImageIcons()[type.ordinal()]);
@@ -160,10 +167,10 @@ public class GameController {
                     public void mouseExited(MouseEvent e) {
                         // Lorsqu'on quitte la cellule, on réaffiche l'icône correspondant à l'état
                         // actuel
-                        if (map.getIsPlacing() && map.getRepresentativeMap()[localRow][localCol] == ResourceList.NULL
+                        if (map.getIsPlacing() && map.getCell(localRow, localCol) == ResourceList.NULL
                                 && (map.getPlayer().getRow() != localRow || map.getPlayer().getCol() != localCol)) {
                             cell.setIcon(
-                                    view.getImageIcons()[map.getRepresentativeMap()[localRow][localCol].ordinal()]);
+                                    view.getImageIcons()[map.getCell(localRow, localCol).ordinal()]);
                         }
                     }
                 });
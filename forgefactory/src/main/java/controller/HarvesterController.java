@@ -13,13 +13,12 @@ import main.java.model.Map.ResourceList;
 import main.java.model.Money;
 import main.java.model.storage.DB;
 import main.java.model.util.Couple;
-import main.java.model.util.Task;
 import main.java.view.HarvesterView;
 
 public class HarvesterController extends MachineController {
     private final Harvester model; // Le modèle représentant le récolteur
     private final HarvesterView view; // La vue associée au récolteur
-    private Task task; // La tâche qui gère l'activité du récolteur
+    private final TaskHandle task; // La tâche périodique qui gère l'activité du récolteur
 
     /**
      * Constructeur de HarvesterController.
@@ -60,17 +59,18 @@ public class HarvesterController extends MachineController {
             view.addButton(list, button);
         }
 
-        // Configuration des gestionnaires d'événements pour les boutons de ressource
-        initListner();
-
-        // Création de la tâche qui gère la récolte des ressources
-        task = new Task(0, () -> {
+        // Création de la tâche périodique qui gère la récolte des ressources, la
+        // période suit la ressource et le bonus de vitesse. Le calcul ne touche qu'au
+        // récolteur et à son inventaire, la vue est mise à jour à la validation.
+        task = Timeline.addParallelPeriodic(model::getCycleTime, () -> {
             // si elle est fragile et pas casser on a un probabilité de 10% quelle casse
             if (model.getFragile() && !model.getBreaked()) {
-                if (Math.random() <= 0.1) {
+                if (model.rollBreak()) {
                     model.setBreaked(true);
-                    setReparation();
-                    notifyView();
+                    return () -> {
+                        setReparation();
+                        sleepUntilUnblocked();
+                    };
                 }
             }
 
@@ -81,22 +81,20 @@ public class HarvesterController extends MachineController {
                 // Si la ressource est valide et que le récolteur est encore fonctionnel
                 if (model.getDurability() > 0 &&
                         model.getInventorySize() >= model.getInventoryCount()
-                                + DB.listToObjet.get(model.getResource()).getQuantity()) {
+                                + DB.itemOf(model.getResource()).getQuantity()) {
                     model.setDurability(model.getDurability() - 1); // Réduction de la durabilité
-                    model.getInventory().addItem(DB.listToObjet.get(model.getResource()),
-                            DB.listToObjet.get(model.getResource()).getQuantity()); // Ajout de la ressource
-                    notifyView(); // Mise à jour de la vue
+                    model.getInventory().addItem(DB.itemOf(model.getResource()),
+                            DB.itemOf(model.getResource()).getQuantity()); // Ajout de la ressource
+                    return this::notifyView; // Mise à jour de la vue
                 }
             }
-            // Mise à jour du temps de la tâche en fonction de la vitesse du récolteur
-            task.setTime(
-                    (int) ((1 - this.model.getExtraSpeed())
-                            * Math.max(DB.listToObjet.get(model.getResource()).getDuration(),
-                                    DB.listToObjet.get(model.getResource()).getRecovery())));
-            Timeline.add(task); // Ajout de la tâche à la timeline
+            // le récolteur est bloqué, il s'endort jusqu'à ce que ça change
+            return this::sleepUntilUnblocked;
         });
-        Timeline.add(task); // Ajout de la tâche à la timeline
         this.model.setTask(task); // Affectation de la tâche au modèle
+
+        // Configuration des gestionnaires d'événements pour les boutons de ressource
+        initListner();
     }
 
     /**
@@ -116,10 +114,34 @@ public class HarvesterController extends MachineController {
                 this.model.setResource(couple.getKey());
                 // Mise à jour de la description de la ressource
                 this.setDescription("Resource : " + couple.getKey());
-                // Mise à jour du temps de la tâche en fonction de la ressource choisie
-                task.setTime(Math.max(DB.listToObjet.get(couple.getKey()).getDuration(),
-                        DB.listToObjet.get(couple.getKey()).getRecovery()));
+                // Recommence le cycle avec le temps de la ressource choisie
+                restartCycle();
+                updateProduction();
             });
         }
     }
+
+    /**
+     * Endort le récolteur bloqué en attendant une réparation s'il est cassé ou
+     * usé, ou de la place dans son inventaire. Sans ressource, seul un
+     * changement de ressource le relance.
+     */
+    private void sleepUntilUnblocked() {
+        if ((model.getFragile() && model.getBreaked()) || model.getDurability() == 0) {
+            sleep(false, false, true);
+        } else {
+            sleep(false, model.getResource() != null, false);
+        }
+    }
+
+    /**
+     * Les récolteurs de la même ressource, avec les mêmes bonus et au même
+     * rythme, sont regroupés.
+     */
+    @Override
+    String getAggregationKey() {
+        if (model.getResource() == null)
+            return null;
+        return "harvester:" + model.getResource() + ":" + model.getEffectiveCycleTime() + ":" + getBonusKey();
+    }
 }
@@ -0,0 +1,179 @@
+package main.java.controller;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * La classe MachineAggregate simule ensemble des machines identiques : même
+ * type, même recette ou ressource, mêmes bonus, même durée de cycle et
+ * alimentées de la même façon.
+ *
+ * Au lieu d'une tâche par machine, le groupe n'a qu'une tâche périodique qui
+ * compte les cycles écoulés, en temps constant quel que soit le nombre de
+ * machines. À chaque regroupement (voir
+ * {@link main.java.model.storage.Value#aggregationPeriod}), chaque machine
+ * reçoit ses cycles en retard d'un seul calcul
+ * ({@link main.java.model.Machine#advanceCycles(long)}) limité par ses propres
+ * ingrédients, sa place et sa durabilité : c'est le multiplicateur du groupe,
+ * réparti entre ses membres, et leur production reste visible dans leur
+ * inventaire.
+ *
+ * Une machine quitte son groupe dès que le joueur s'en sert (clic, changement
+ * de recette, de ressource ou de bonus) : elle est mise à jour puis reprend sa
+ * propre tâche. Les machines utilisées récemment, endormies ou qui changent de
+ * recette toutes seules ne sont pas regroupées. La progression du cycle en
+ * cours est gardée, au tick près, à l'entrée et à la sortie d'un groupe.
+ */
+public class MachineAggregate {
+    // les groupes actifs, par clé de regroupement
+    private static final HashMap<String, MachineAggregate> aggregates = new HashMap<>();
+
+    private final String key; // la clé commune des membres
+    private final double period; // la durée d'un cycle en secondes
+    private final TaskHandle task; // la tâche qui compte les cycles
+    private final long periodTicks; // la durée d'un cycle en ticks
+    // les membres, avec ce qui leur a déjà été appliqué
+    private final LinkedHashMap<MachineController, Member> members = new LinkedHashMap<>();
+    private long cycles = 0; // le nombre de cycles écoulés depuis la création du groupe
+
+    /**
+     * Crée un groupe vide et sa tâche.
+     *
+     * @param key    La clé commune des membres.
+     * @param period La durée d'un cycle en secondes.
+     */
+    private MachineAggregate(String key, double period) {
+        this.key = key;
+        this.period = period;
+        this.periodTicks = Math.max(1, Math.round(period * 1000 / Timeline.getIntervale()));
+        this.task = Timeline.addPeriodic(() -> this.period, () -> cycles++);
+        this.task.reschedule(period); // le premier cycle dure une période complète
+    }
+
+    /**
+     * Regroupe les machines identiques d'une carte qui tournent sans que le
+     * joueur s'en serve. À appeler régulièrement (voir
+     * {@link main.java.model.storage.Value#aggregationPeriod}).
+     *
+     * @param machines Les machines de la carte.
+     */
+    public static void merge(Iterable<MachineController> machines) {
+        syncAll(); // rend visible la production des groupes
+        HashMap<String, MachineController> alone = new HashMap<>();
+        for (MachineController machine : machines) {
+            boolean used = machine.recentlyUsed;
+            machine.recentlyUsed = false;
+            String key = machine.getAggregationKey();
+            if (used || key == null || machine.aggregate != null || machine.isSleeping())
+                continue;
+            MachineAggregate aggregate = aggregates.get(key);
+            if (aggregate != null) {
+                aggregate.join(machine);
+                continue;
+            }
+            MachineController other = alone.remove(key);
+            if (other == null) {
+                alone.put(key, machine); // en attente d'une machine identique
+                continue;
+            }
+            aggregate = new MachineAggregate(key, machine.getModel().getEffectiveCycleTime());
+            aggregates.put(key, aggregate);
+            aggregate.join(other);
+            aggregate.join(machine);
+        }
+    }
+
+    /**
+     * Applique à toutes les machines regroupées les cycles qu'elles n'ont pas
+     * encore reçus, sans défaire les groupes (à chaque regroupement et avant une
+     * sauvegarde).
+     */
+    public static void syncAll() {
+        for (MachineAggregate aggregate : aggregates.values()) {
+            for (Entry<MachineController, Member> member : aggregate.members.entrySet()) {
+                Member applied = member.getValue();
+                if (aggregate.cycles > applied.cycles) {
+                    member.getKey().advanceCycles(aggregate.cycles - applied.cycles);
+                    applied.cycles = aggregate.cycles;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ajoute une machine au groupe : sa propre tâche est arrêtée et l'avance de
+     * son cycle sur celui du groupe est retenue.
+     */
+    private void join(MachineController machine) {
+        TaskHandle own = machine.getModel().getTask();
+        long remaining = Timeline.ticksBefore(own);
+        if (remaining == 0)
+            remaining = periodTicks; // pas de cycle en cours
+        own.cancel();
+        machine.aggregate = this;
+        // les cycles de la machine finissent lead ticks avant ceux du groupe
+        Member member = new Member(cycles, Timeline.ticksBefore(task) - remaining);
+        if (member.lead < 0) {
+            // son cycle en cours finit après le prochain cycle du groupe
+            member.cycles++;
+            member.lead += periodTicks;
+        }
+        members.put(machine, member);
+    }
+
+    /**
+     * Retire une machine du groupe : elle reçoit ses cycles en retard puis
+     * reprend sa propre tâche là où en est son cycle. Un groupe d'une seule
+     * machine est défait.
+     *
+     * @param machine La machine à retirer.
+     */
+    void split(MachineController machine) {
+        Member member = members.remove(machine);
+        if (member == null)
+            return;
+        machine.aggregate = null;
+        long owed = cycles - member.cycles;
+        long next = Timeline.ticksBefore(task) - member.lead; // fin de son cycle en cours
+        if (next <= 0) {
+            owed++; // son cycle est fini, le groupe ne l'a pas encore compté
+            next += periodTicks;
+        }
+        machine.advanceCycles(Math.max(0, owed));
+        Timeline.rescheduleInTicks(machine.getModel().getTask(), next);
+        if (members.size() == 1) {
+            split(members.keySet().iterator().next()); // défait le groupe
+        } else if (members.isEmpty()) {
+            task.cancel();
+            aggregates.remove(key);
+        }
+    }
+
+    /**
+     * @return le nombre de machines du groupe
+     */
+    public int size() {
+        return members.size();
+    }
+
+    /**
+     * @return le nombre de groupes actifs
+     */
+    public static int count() {
+        return aggregates.size();
+    }
+
+    /**
+     * Ce qui a déjà été appliqué à un membre du groupe.
+     */
+    private static final class Member {
+        long cycles; // le nombre de cycles du groupe déjà appliqués
+        long lead; // l'avance en ticks de son cycle sur celui du groupe
+
+        Member(long cycles, long lead) {
+            this.cycles = cycles;
+            this.lead = lead;
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package main.java.controller;
 
+import java.time.Duration;
 import main.java.model.Enum.BonusMachine;
 import main.java.model.Exception.NotEnoughMoney;
-import main.java.model.Exception.NotFound;
 import main.java.model.Interface.Clickable;
 import main.java.model.Inventory;
 import main.java.model.Machine;
@@ -20,6 +20,9 @@ public abstract class MachineController implements Clickable {
     private final Inventory playerInventory;
 
     private String description;
+    private boolean sleeping; // la machine est bloquée et attend un changement pour reprendre
+    MachineAggregate aggregate; // le groupe de machines identiques qui la simule, null sinon
+    boolean recentlyUsed; // le joueur s'en est servi depuis le dernier regroupement
 
     /**
      * Constructeur du contrôleur pour gérer l'interaction entre la vue, le modèle
@@ -97,6 +100,15 @@ public abstract class MachineController implements Clickable {
         Bonus.applyBonus(this.model);
     }
 
+    /**
+     * Met à jour l'analyse de production de la carte après un changement de
+     * recette, de ressource ou de bonus.
+     */
+    protected void updateProduction() {
+        if (Value.map != null)
+            Value.map.getProduction().update(this.model);
+    }
+
     /**
      * Initialise les gestionnaires d'événements pour les actions liées à
      * l'inventaire.
@@ -106,34 +118,41 @@ public abstract class MachineController implements Clickable {
     private void setInventoryHandler() {
         // Pour chaque élément compacté dans la vue, ajoute des listeners pour gérer les
         // actions
+        // Listener pour vider toute la machine dans l'inventaire du joueur
+        this.view.getTakeAllButton().addActionListener(a -> {
+            if (model.getInventory().transferAll(playerInventory) > 0)
+                notifyView();
+        });
+
         this.view.getInventoryViewCompactors().forEach(e -> {
             // Listener pour récupérer un objet de la machine
             e.getGet().addActionListener(a -> {
-                try {
-                    model.getInventory().removeItem(e.getItem(), 1); // Retirer l'objet de la machine
-                    playerInventory.addItem(e.getItem(), 1); // Ajouter l'objet à l'inventaire du joueur
+                // Passe jusqu'à N objets de la machine au joueur
+                if (model.getInventory().transferAsManyAsPossible(playerInventory, e.getItem(),
+                        this.view.getTransferQuantity()) > 0)
                     notifyView();
-                } catch (NotFound exception) {
-                    // Exception ignorée si l'objet n'est pas trouvé
-                } finally {
+            });
+
+            // Listener pour récupérer tous les objets de ce type
+            e.getGetAll().addActionListener(a -> {
+                if (model.getInventory().transferAsManyAsPossible(playerInventory, e.getItem(),
+                        Integer.MAX_VALUE) > 0)
                     notifyView();
-                }
             });
 
             // Listener pour déposer un objet dans la machine
             e.getPut().addActionListener(a -> {
-                try {
-                    if (model.getInventory().getCurrentCount() == model.getInventory().getCapacity()) // Si l'inventaire
-                                                                                                      // est
-                        // plein
-                        return;
-                    playerInventory.removeItem(e.getItem(), 1); // Retirer l'objet de l'inventaire du joueur
-                    model.getInventory().addItem(e.getItem(), 1); // Ajouter l'objet à la machine
-                } catch (NotFound exception) {
-                    // Exception ignorée si l'objet n'est pas trouvé
-                } finally {
+                // Passe jusqu'à N objets du joueur à la machine, dans la limite de sa place
+                if (playerInventory.transferAsManyAsPossible(model.getInventory(), e.getItem(),
+                        this.view.getTransferQuantity()) > 0)
+                    notifyView();
+            });
+
+            // Listener pour déposer tous les objets de ce type
+            e.getPutAll().addActionListener(a -> {
+                if (playerInventory.transferAsManyAsPossible(model.getInventory(), e.getItem(),
+                        Integer.MAX_VALUE) > 0)
                     notifyView();
-                }
             });
         });
     }
@@ -166,6 +185,7 @@ public abstract class MachineController implements Clickable {
                 this.wallet.removeAmount(150);
                 this.model.extraSpeed(0.1); // Augmenter la vitesse de la machine
                 this.model.addcountBonus(BonusMachine.SPEED); // Ajouter le bonus
+                updateProduction(); // Le débit suit les bonus
                 this.notifyView();
             } catch (NotEnoughMoney exception) {
                 Value.printError("Not Enough Money");
@@ -180,6 +200,7 @@ public abstract class MachineController implements Clickable {
                 this.wallet.removeAmount(150);
                 this.model.extraSize(100); // Augmenter la taille de l'inventaire de la machine
                 this.model.addcountBonus(BonusMachine.XL); // Ajouter le bonus
+                updateProduction(); // Le débit suit les bonus
                 this.notifyView();
             } catch (NotEnoughMoney exception) {
                 Value.printError("Not Enough Money");
@@ -194,6 +215,7 @@ public abstract class MachineController implements Clickable {
                 this.wallet.removeAmount(150);
                 this.model.setMaxDurability(this.model.getMaxDurability() + 100); // Augmenter la durabilité maximale
                 this.model.addcountBonus(BonusMachine.UNBREAKING);
+                updateProduction(); // Le débit suit les bonus
                 this.notifyView();
             } catch (NotEnoughMoney exception) {
                 Value.printError("Not Enough Money");
@@ -208,6 +230,7 @@ public abstract class MachineController implements Clickable {
             try {
                 this.wallet.removeAmount(150);
                 this.model.setPolytvalente(); // Appliquer le bonus polyvalent
+                updateProduction(); // Le débit suit les bonus
                 this.notifyView();
                 // Ajouter le panneau de configuration
                 this.view.addActionsPane();
@@ -222,11 +245,141 @@ public abstract class MachineController implements Clickable {
      * Cette méthode met à jour les labels dans la vue avec la description actuelle.
      */
     protected void notifyView() {
-        this.view.updateLabels(this.description);
+        // une seule mise à jour par machine et par tick
+        SimulationClock.postView(this, () -> this.view.updateLabels(this.description));
+    }
+
+    /**
+     * Fait avancer la machine d'une durée donnée en un seul calcul puis met à
+     * jour la vue.
+     *
+     * @param elapsed La durée écoulée.
+     * @return Le nombre de cycles effectués.
+     */
+    public int advance(Duration elapsed) {
+        boolean wasBroken = this.model.getBreaked();
+        int cycles = this.model.advance(elapsed);
+        afterAdvance(wasBroken);
+        return cycles;
+    }
+
+    /**
+     * Fait plusieurs cycles de la machine d'un coup puis met à jour la vue.
+     *
+     * @param cycles Le nombre de cycles écoulés.
+     * @return Le nombre de cycles effectués.
+     */
+    int advanceCycles(long cycles) {
+        boolean wasBroken = this.model.getBreaked();
+        int done = this.model.advanceCycles(cycles);
+        afterAdvance(wasBroken);
+        return done;
+    }
+
+    /**
+     * Affiche la réparation si la machine a cassé pendant un saut de cycles,
+     * sinon met simplement la vue à jour.
+     */
+    private void afterAdvance(boolean wasBroken) {
+        if (!wasBroken && this.model.getBreaked()) {
+            setReparation();
+        } else {
+            notifyView();
+        }
+    }
+
+    /**
+     * Retourne ce qui doit être identique pour que deux machines soient
+     * simulées ensemble (type, programme, durée d'un cycle).
+     *
+     * @return La clé, ou null si la machine ne peut pas être regroupée.
+     */
+    String getAggregationKey() {
+        return null;
+    }
+
+    /**
+     * Retourne les bonus de la machine, pour la clé de regroupement.
+     *
+     * @return Le nombre de chaque bonus, dans l'ordre de {@link BonusMachine}.
+     */
+    String getBonusKey() {
+        StringBuilder key = new StringBuilder();
+        for (BonusMachine bonusMachine : BonusMachine.values())
+            key.append(this.model.getNumberOf(bonusMachine)).append('/');
+        return key.toString();
+    }
+
+    /**
+     * Arrête la machine : sa tâche périodique est retirée de la timeline en
+     * temps constant (à appeler quand la machine est retirée de la carte).
+     */
+    public void stop() {
+        if (this.aggregate != null)
+            this.aggregate.split(this);
+        this.sleeping = false;
+        forgetWakeConditions();
+        if (this.model.getTask() != null)
+            this.model.getTask().cancel();
+    }
+
+    /**
+     * Endort une machine bloquée : sa tâche périodique est retirée de la
+     * timeline et elle ne sera réveillée que par l'un des changements demandés.
+     * Une machine endormie ne coûte rien aux ticks suivants.
+     * Doit être appelée hors de la phase de calcul parallèle (à la validation).
+     *
+     * @param onItemAdded  réveiller quand un objet arrive dans l'inventaire
+     * @param onSpaceFreed réveiller quand de la place se libère dans l'inventaire
+     * @param onRepair     réveiller quand la machine est réparée
+     */
+    protected void sleep(boolean onItemAdded, boolean onSpaceFreed, boolean onRepair) {
+        this.model.getTask().cancel();
+        this.sleeping = true;
+        if (onItemAdded)
+            this.model.getInventory().notifyOnItemAdded(this::wake);
+        if (onSpaceFreed)
+            this.model.getInventory().notifyOnSpaceFreed(this::wake);
+        if (onRepair)
+            this.model.notifyOnRepair(this::wake);
+    }
+
+    /**
+     * Réveille la machine si elle dort : elle reprend un cycle complet.
+     */
+    protected void wake() {
+        if (this.sleeping)
+            restartCycle();
+    }
+
+    /**
+     * Recommence un cycle complet (changement de recette ou de ressource,
+     * réveil), que la machine dorme ou non.
+     */
+    protected void restartCycle() {
+        this.sleeping = false;
+        forgetWakeConditions();
+        this.model.getTask().reschedule(this.model.getCycleTime());
+    }
+
+    /**
+     * @return true si la machine est bloquée et endormie
+     */
+    public boolean isSleeping() {
+        return this.sleeping;
+    }
+
+    /**
+     * Oublie les conditions de réveil enregistrées.
+     */
+    private void forgetWakeConditions() {
+        this.model.getInventory().notifyOnItemAdded(null);
+        this.model.getInventory().notifyOnSpaceFreed(null);
+        this.model.notifyOnRepair(null);
     }
 
     protected void setReparation() {
-        this.view.addReparation();
+        SimulationClock.postView(null, this.view::addReparation);
         this.notifyView();
     }
 
@@ -239,6 +392,11 @@ public abstract class MachineController implements Clickable {
      */
     @Override
     public void action(GUI frame) {
+        // la machine redevient indépendante tant que le joueur s'en sert
+        this.recentlyUsed = true;
+        if (this.aggregate != null)
+            this.aggregate.split(this);
+
         this.view.removeActionsPane(); // Supprime le panneau d'actions actuel
 
         // Si la machine est polyvalente, on ajoute le panneau de configuration
@@ -0,0 +1,270 @@
+package main.java.controller;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.LockSupport;
+import javax.swing.SwingUtilities;
+
+/**
+ * La classe SimulationClock fait avancer la simulation (la Timeline) à pas
+ * fixe sur son propre thread, indépendamment de Swing.
+ *
+ * - Le pas vaut {@link Timeline#getIntervale()} millisecondes de temps de jeu.
+ * - La vitesse est un multiplicateur du temps réel ; une vitesse de 0 (ou
+ * négative) fait tourner la simulation aussi vite que possible.
+ * - {@link #step(int)} permet d'avancer manuellement quand l'horloge est
+ * arrêtée (tests, benchmarks, saut de temps).
+ * - {@link #stop()} met la simulation en pause : ajouter une tâche ne relance
+ * l'horloge ({@link #resume()}) que si elle n'est pas en pause, seul
+ * {@link #start()} la relance.
+ *
+ * Le démarrage et l'arrêt se font sous un verrou à part, que le thread de
+ * simulation ne prend jamais, et l'arrêt attend la fin du thread hors de ce
+ * verrou : un tick qui ajoute une tâche pendant l'arrêt ne peut pas bloquer.
+ *
+ * Le modèle n'est modifié que sous le verrou de l'horloge. En mode graphique,
+ * les évènements de l'EDT sont distribués sous ce même verrou, les écouteurs
+ * Swing n'ont donc pas à s'en soucier. Les mises à jour de la vue produites
+ * pendant un tick sont regroupées (une seule par clé) et envoyées à l'EDT en
+ * un seul lot à la fin du tick. En mode headless elles sont ignorées.
+ */
+public class SimulationClock {
+    private static final Object lock = new Object(); // verrou du modèle
+    // mises à jour de la vue en attente, une par clé, dans l'ordre d'arrivée
+    private static final LinkedHashMap<Object, Runnable> pendingViewUpdates = new LinkedHashMap<>();
+    private static boolean headless = GraphicsEnvironment.isHeadless();
+    private static boolean eventQueueInstalled = false;
+    private static final Object stateLock = new Object(); // verrou du démarrage et de l'arrêt
+    private static volatile boolean running = false;
+    private static volatile boolean paused = false; // arrêtée par stop(), jusqu'au prochain start()
+    private static volatile double speed = 1.0; // multiplicateur du temps réel
+    private static volatile Thread thread; // le thread de simulation en cours
+    private static long tickCount = 0;
+
+    /**
+     * Démarre le thread de simulation s'il ne tourne pas déjà, et sort de la
+     * pause.
+     */
+    public static void start() {
+        synchronized (stateLock) {
+            paused = false;
+            launch();
+        }
+    }
+
+    /**
+     * Relance l'horloge si elle n'est ni lancée ni en pause (appelé quand une
+     * tâche est ajoutée). Ne prend aucun verrou quand il n'y a rien à faire,
+     * en particulier depuis le thread de simulation.
+     */
+    static void resume() {
+        if (running || paused || headless)
+            return;
+        synchronized (stateLock) {
+            if (!paused)
+                launch();
+        }
+    }
+
+    /**
+     * Lance un nouveau thread de simulation (sous stateLock).
+     */
+    private static void launch() {
+        if (running)
+            return;
+        if (!headless)
+            installEventQueue();
+        running = true;
+        Thread started = new Thread(SimulationClock::loop, "simulation");
+        started.setDaemon(true);
+        thread = started;
+        started.start();
+    }
+
+    /**
+     * Met la simulation en pause après le tick en cours : l'horloge ne repart
+     * qu'avec {@link #start()}.
+     */
+    public static void stop() {
+        Thread stopped;
+        synchronized (stateLock) {
+            paused = true; // avant running, pour que resume() ne relance rien
+            running = false;
+            stopped = thread;
+            thread = null;
+        }
+        // attendre le thread hors des verrous ; pas si on détient celui dont il a besoin
+        if (stopped != null && stopped != Thread.currentThread() && !Thread.holdsLock(lock)) {
+            try {
+                stopped.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Avance manuellement la simulation de plusieurs ticks sur le thread
+     * appelant. L'horloge doit être arrêtée.
+     *
+     * @param ticks le nombre de ticks à simuler
+     */
+    public static void step(int ticks) {
+        if (running)
+            throw new IllegalStateException("The simulation clock is already running");
+        for (int i = 0; i < ticks; i++) {
+            tick();
+        }
+    }
+
+    /**
+     * Boucle principale du thread de simulation : un tick tous les
+     * interval / speed millisecondes, en rattrapant le retard sans dériver.
+     */
+    private static void loop() {
+        long next = System.nanoTime();
+        // un thread arrêté puis remplacé par start() s'arrête aussi
+        while (running && thread == Thread.currentThread()) {
+            tick();
+            double currentSpeed = speed;
+            if (currentSpeed <= 0) {
+                next = System.nanoTime();
+                continue;
+            }
+            next += (long) (Timeline.getIntervale() * 1_000_000L / currentSpeed);
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else if (wait < -1_000_000_000L) {
+                // plus d'une seconde de retard : on abandonne le rattrapage
+                next = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Effectue un tick de simulation puis envoie les mises à jour de la vue.
+     */
+    private static void tick() {
+        synchronized (lock) {
+            Timeline.tick();
+            tickCount++;
+        }
+        flushViewUpdates();
+    }
+
+    /**
+     * Envoie à l'EDT, en un seul lot, les mises à jour de la vue accumulées
+     * pendant le tick.
+     */
+    private static void flushViewUpdates() {
+        ArrayList<Runnable> batch;
+        synchronized (lock) {
+            if (pendingViewUpdates.isEmpty())
+                return;
+            batch = new ArrayList<>(pendingViewUpdates.values());
+            pendingViewUpdates.clear();
+        }
+        SwingUtilities.invokeLater(() -> batch.forEach(Runnable::run));
+    }
+
+    /**
+     * Transmet une mise à jour de la vue.
+     * Sur l'EDT elle est exécutée immédiatement ; depuis la simulation elle est
+     * mise en attente jusqu'à la fin du tick, et remplace une éventuelle mise à
+     * jour précédente de même clé. En mode headless elle est ignorée.
+     *
+     * @param key    la clé de regroupement, ou null pour ne jamais regrouper
+     * @param update la mise à jour à exécuter sur l'EDT
+     */
+    public static void postView(Object key, Runnable update) {
+        if (headless)
+            return;
+        if (SwingUtilities.isEventDispatchThread()) {
+            update.run();
+            return;
+        }
+        synchronized (lock) {
+            Object realKey = key == null ? new Object() : key;
+            pendingViewUpdates.remove(realKey); // garde l'ordre de la dernière mise à jour
+            pendingViewUpdates.put(realKey, update);
+        }
+    }
+
+    /**
+     * Fait passer tous les évènements de l'EDT sous le verrou du modèle pour que
+     * les écouteurs Swing ne s'exécutent jamais en même temps qu'un tick.
+     */
+    private static void installEventQueue() {
+        if (eventQueueInstalled)
+            return;
+        eventQueueInstalled = true;
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new EventQueue() {
+            @Override
+            protected void dispatchEvent(AWTEvent event) {
+                synchronized (lock) {
+                    super.dispatchEvent(event);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return le verrou à prendre pour lire ou modifier le modèle hors de l'EDT
+     *         et du thread de simulation
+     */
+    public static Object getLock() {
+        return lock;
+    }
+
+    /**
+     * Active ou désactive le mode headless (aucune mise à jour de la vue).
+     *
+     * @param isHeadless true pour simuler sans affichage
+     */
+    public static void setHeadless(boolean isHeadless) {
+        headless = isHeadless;
+    }
+
+    public static boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * Change la vitesse de la simulation.
+     *
+     * @param multiplier multiplicateur du temps réel, 0 pour aller aussi vite
+     *                   que possible
+     */
+    public static void setSpeed(double multiplier) {
+        speed = multiplier;
+    }
+
+    public static double getSpeed() {
+        return speed;
+    }
+
+    public static boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return true si la simulation a été mise en pause par {@link #stop()}
+     */
+    public static boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * @return le nombre de ticks simulés depuis le lancement
+     */
+    public static long getTickCount() {
+        synchronized (lock) {
+            return tickCount;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package main.java.controller;
+
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import main.java.model.util.Task;
+
+/**
+ * La classe TaskHandle est la poignée d'une tâche programmée dans la Timeline.
+ * Elle permet d'annuler ou de reprogrammer la tâche en temps constant.
+ *
+ * Une poignée périodique relance sa tâche toute seule après chaque exécution.
+ * La prochaine échéance est calculée à partir de l'échéance précédente (et non
+ * de l'heure d'exécution) pour que la période ne dérive pas ; la période est
+ * relue après chaque exécution, elle peut donc suivre une recette ou un bonus
+ * de vitesse.
+ *
+ * Une poignée parallèle découpe sa tâche en deux phases : un calcul qui ne
+ * modifie que l'état propre de la tâche (une machine et son inventaire) et qui
+ * peut s'exécuter en même temps que les autres calculs du tick, puis une
+ * validation qui applique les effets partagés (vue, casse...) dans l'ordre.
+ */
+public class TaskHandle {
+    // Données utilisées par la roue temporelle
+    final Task task; // La tâche à exécuter
+    long deadline; // Le tick d'exécution
+    int level = TimingWheel.UNSCHEDULED; // Le niveau de la roue où est rangée la tâche
+    int slot; // La case de la roue où est rangée la tâche
+    TaskHandle prev; // Maillons de la liste de la case
+    TaskHandle next;
+
+    // Gestion des tâches périodiques
+    private final DoubleSupplier period; // La période en secondes, null pour une tâche unique
+    private double exactDeadline; // L'échéance exacte (non arrondie) en ticks
+
+    // Gestion des tâches parallèles
+    private final Supplier<Runnable> compute; // Le calcul, qui retourne la validation (ou null)
+    Runnable commit; // La validation calculée pendant le tick en cours
+    boolean computed; // Calcul fait, validation pas encore exécutée
+
+    /**
+     * Constructeur d'une poignée de tâche unique.
+     *
+     * @param task La tâche à exécuter.
+     */
+    TaskHandle(Task task) {
+        this(task, null);
+    }
+
+    /**
+     * Constructeur d'une poignée de tâche périodique.
+     *
+     * @param task   La tâche à exécuter.
+     * @param period La période en secondes, relue après chaque exécution.
+     */
+    TaskHandle(Task task, DoubleSupplier period) {
+        this.task = task;
+        this.period = period;
+        this.compute = null;
+    }
+
+    /**
+     * Constructeur d'une poignée de tâche périodique parallèle. Exécutée seule,
+     * la tâche enchaîne le calcul et sa validation.
+     *
+     * @param period  La période en secondes, relue après chaque exécution.
+     * @param compute Le calcul, qui retourne la validation à appliquer (ou null).
+     */
+    TaskHandle(DoubleSupplier period, Supplier<Runnable> compute) {
+        this.task = new Task(0, () -> {
+            Runnable validation = compute.get();
+            if (validation != null)
+                validation.run();
+        });
+        this.period = period;
+        this.compute = compute;
+    }
+
+    /**
+     * Annule la tâche. Une tâche périodique ne sera plus relancée.
+     * Sans effet si la tâche n'est plus programmée.
+     */
+    public void cancel() {
+        Timeline.cancel(this);
+    }
+
+    /**
+     * Reprogramme la tâche pour qu'elle s'exécute dans le délai donné, comme si
+     * elle venait d'être ajoutée. Pour une tâche périodique, les exécutions
+     * suivantes repartent de cette nouvelle échéance.
+     *
+     * @param delayInSecond Le nouveau délai, en secondes.
+     */
+    public void reschedule(double delayInSecond) {
+        Timeline.reschedule(this, delayInSecond);
+    }
+
+    /**
+     * Indique si la tâche attend encore son exécution.
+     *
+     * @return true si la tâche est programmée.
+     */
+    public boolean isScheduled() {
+        return this.level >= 0;
+    }
+
+    /**
+     * Indique si la tâche est périodique.
+     *
+     * @return true si la tâche se relance après chaque exécution.
+     */
+    public boolean isPeriodic() {
+        return this.period != null;
+    }
+
+    /**
+     * Indique si le calcul de la tâche peut être exécuté en parallèle.
+     *
+     * @return true si la tâche est découpée en calcul et validation.
+     */
+    public boolean isParallel() {
+        return this.compute != null;
+    }
+
+    /**
+     * Exécute la phase de calcul et garde la validation pour la suite du tick.
+     */
+    void compute() {
+        this.commit = this.compute.get();
+        this.computed = true;
+    }
+
+    /**
+     * Exécute la partie de la tâche qui doit se faire dans l'ordre : la
+     * validation pour une tâche parallèle, la tâche entière sinon.
+     */
+    void runInOrder() {
+        if (this.compute == null) {
+            this.task.getTask().run();
+        } else if (this.computed) {
+            Runnable validation = this.commit;
+            this.commit = null;
+            this.computed = false;
+            if (validation != null)
+                validation.run();
+        }
+    }
+
+    /**
+     * Retourne la tâche associée à la poignée.
+     *
+     * @return La tâche.
+     */
+    public Task getTask() {
+        return this.task;
+    }
+
+    /**
+     * Fixe l'échéance de la tâche.
+     *
+     * @param tick Le tick d'exécution.
+     */
+    void setDeadline(long tick) {
+        this.deadline = tick;
+        this.exactDeadline = tick;
+    }
+
+    /**
+     * Calcule l'échéance suivante d'une tâche périodique à partir de l'échéance
+     * exacte précédente, sans jamais revenir dans le passé.
+     *
+     * @param now Le tick courant.
+     * @return Le tick de la prochaine exécution.
+     */
+    long nextDeadline(long now) {
+        double periodInTicks = Math.max(1, this.period.getAsDouble() * 1000 / Timeline.getIntervale());
+        this.exactDeadline += periodInTicks;
+        this.deadline = Math.max(now + 1, (long) Math.ceil(this.exactDeadline - 1e-9));
+        return this.deadline;
+    }
+}
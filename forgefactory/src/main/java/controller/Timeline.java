@@ -1,103 +1,239 @@
 package main.java.controller;
 
-import java.util.LinkedList;
-import javax.swing.*;
-import main.java.model.util.Objet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import main.java.model.storage.Value;
+import main.java.model.util.CraftOrder;
 import main.java.model.util.Task;
 
 public class Timeline {
-    private static final LinkedList<Task> tasklist = new LinkedList<>(); // la liste de tache
-    private static final LinkedList<Task> toAdd = new LinkedList<>();
-    private static final LinkedList<Task> craftQueue = new LinkedList<>();
-    private static final LinkedList<Objet> resultCraftQueue = new LinkedList<>();
+    private static final TimingWheel wheel = new TimingWheel(); // les taches rangées par échéance
+    // commandes de craft du joueur en attente d'un emplacement libre
+    private static final PriorityQueue<CraftOrder> craftQueue = new PriorityQueue<>(CraftOrder.QUEUE_ORDER);
+    // commandes de craft en cours, une par emplacement (null si libre)
+    private static final CraftOrder[] craftSlots = new CraftOrder[Value.playerCraftSlots];
+    private static Runnable onCraftProgress; // appelé après chaque livraison de craft
     private static final int interval = 125; // Intervalle en millisecondes 4 fois par seconde
-    private static boolean isRunning = false;
-    private static boolean isCrafting = false;
-    private static final Timer timer = new Timer(interval, e -> run());
 
     /**
-     * run is the main function. She is call every $interval ms and manage every
-     * task
+     * tick is the main function. She is call every $interval ms of game time by
+     * the SimulationClock and only runs the tasks whose deadline is the current
+     * tick
      */
-    private static void run() {
-        LinkedList<Task> toRemove = new LinkedList<>();
-        for (Task runnable : tasklist) {
-            if (runnable.getTime() == 0) {
-                runnable.getTask().run();
-                toRemove.add(runnable);
-            } else {
-                runnable.decreaseTime();
-            }
+    static void tick() {
+        wheel.tick();
+    }
+
+    /**
+     * Ajoute une tâche à la timeline. Elle sera exécutée après getTime() ticks.
+     * Le délai est lu au moment de l'ajout.
+     *
+     * @param task la tâche à exécuter
+     * @return la poignée permettant d'annuler ou de reprogrammer la tâche
+     */
+    public static TaskHandle add(Task task) {
+        TaskHandle handle = new TaskHandle(task);
+        synchronized (SimulationClock.getLock()) {
+            wheel.schedule(handle, task.getTime());
+        }
+        startClock();
+        return handle;
+    }
+
+    /**
+     * Ajoute une tâche périodique à la timeline. Elle est exécutée au prochain
+     * tick puis toutes les period secondes, jusqu'à son annulation. La période
+     * est relue après chaque exécution et l'échéance suivante est calculée à
+     * partir de la précédente, sans dérive.
+     *
+     * @param period   la période en secondes (au moins un tick)
+     * @param runnable la tâche à exécuter
+     * @return la poignée permettant d'annuler ou de reprogrammer la tâche
+     */
+    public static TaskHandle addPeriodic(DoubleSupplier period, Runnable runnable) {
+        TaskHandle handle = new TaskHandle(new Task(0, runnable), period);
+        synchronized (SimulationClock.getLock()) {
+            wheel.schedule(handle, 0);
+        }
+        startClock();
+        return handle;
+    }
+
+    /**
+     * Ajoute une tâche périodique parallèle à la timeline (voir
+     * {@link #addPeriodic(DoubleSupplier, Runnable)}). Le calcul ne doit modifier
+     * que l'état propre de la tâche (par exemple une machine et son inventaire)
+     * car il peut s'exécuter en même temps que les calculs des autres tâches du
+     * tick. Il retourne la validation (ou null) qui applique les effets partagés
+     * (vue, argent...) ; les validations sont exécutées dans l'ordre, une par une.
+     *
+     * @param period  la période en secondes (au moins un tick)
+     * @param compute le calcul, qui retourne la validation à exécuter
+     * @return la poignée permettant d'annuler ou de reprogrammer la tâche
+     */
+    public static TaskHandle addParallelPeriodic(DoubleSupplier period, Supplier<Runnable> compute) {
+        TaskHandle handle = new TaskHandle(period, compute);
+        synchronized (SimulationClock.getLock()) {
+            wheel.schedule(handle, 0);
         }
-        // Evite les modifications en même temps qu'une lecture
-        for (Task rm : toRemove) {
-            tasklist.remove(rm);
+        startClock();
+        return handle;
+    }
+
+    /**
+     * Retire une tâche de la timeline (voir {@link TaskHandle#cancel()}).
+     */
+    static void cancel(TaskHandle handle) {
+        synchronized (SimulationClock.getLock()) {
+            wheel.cancel(handle);
         }
-        // Evite les modifications en même temps qu'une lecture
-        for (Task add : toAdd) {
-            tasklist.add(add);
+    }
+
+    /**
+     * Reprogramme une tâche (voir {@link TaskHandle#reschedule(double)}).
+     */
+    static void reschedule(TaskHandle handle, double delayInSecond) {
+        synchronized (SimulationClock.getLock()) {
+            wheel.schedule(handle, Task.toTicks(delayInSecond));
         }
-        toAdd.clear();
+        startClock();
     }
 
-    public static void add(Task task) {
-        // gestion en différer pour ne pas "casser" les noeuds de la liste iterative
-        toAdd.add(task);
-        // si le timer n'a pas été lancer
-        if (!isRunning) {
-            timer.start();
-            isRunning = true;
+    /**
+     * Retourne le nombre de ticks avant la prochaine exécution d'une tâche.
+     *
+     * @param handle la poignée de la tâche
+     * @return le nombre de ticks (au moins 1), 0 si la tâche n'est pas programmée
+     */
+    static long ticksBefore(TaskHandle handle) {
+        synchronized (SimulationClock.getLock()) {
+            return handle.isScheduled() ? Math.max(1, handle.deadline - wheel.now()) : 0;
         }
     }
 
+    /**
+     * Reprogramme une tâche pour qu'elle s'exécute dans le nombre de ticks donné,
+     * sans passer par une durée en secondes (voir
+     * {@link TaskHandle#reschedule(double)}).
+     *
+     * @param handle la poignée de la tâche
+     * @param ticks  le nombre de ticks avant l'exécution (au moins 1)
+     */
+    static void rescheduleInTicks(TaskHandle handle, long ticks) {
+        synchronized (SimulationClock.getLock()) {
+            wheel.schedule(handle, (int) Math.min(Integer.MAX_VALUE, Math.max(1, ticks) - 1));
+        }
+        startClock();
+    }
+
+    /**
+     * Lance l'horloge si elle n'a pas été lancée, sauf si elle est en pause (en
+     * headless on avance à la main avec step).
+     */
+    private static void startClock() {
+        SimulationClock.resume();
+    }
+
     /**
      * addCraft est appele par un event de la partie craft du jeu
-     * elle permet au joueur de crafter un objet en respectant une file d'attente
+     * elle permet au joueur de crafter en respectant une file d'attente
      * pour un jeu plus réaliste
      * 
      * Les machines gère elle meme leurs craft, elle n'interagissent jamais avec
      * cette file d'attente
      * 
-     * @param result the result
-     * @param timeInSecond the duration of the task 
-     * @param runnable the task to run
+     * Le joueur a Value.playerCraftSlots emplacements de craft qui travaillent en
+     * parallèle. Chaque emplacement exécute une commande comme un seul travail :
+     * un paquet de fabrications à la fois (voir {@link CraftOrder#nextChunk()}).
+     * Quand il se libère, il prend la commande en attente la plus prioritaire,
+     * la plus ancienne d'abord.
+     * 
+     * @param order la commande, dont les ingrédients ont déjà été retirés
      */
-    public static void addCraft(Objet result, int timeInSecond, Runnable runnable) {
-        // demarre le timer si rien n'a encore lancer le timer
-        if (!isRunning) {
-            timer.start();
-            isRunning = true;
+    public static void addCraft(CraftOrder order) {
+        synchronized (SimulationClock.getLock()) {
+            craftQueue.add(order);
+            fillCraftSlots();
         }
+    }
 
-        // on "reecrit" la tache avec des choses en plus pour pouvoir donné au joueur le
-        // resultat de sa recette ainsi que gerer la file d'attente
-        Task newTask = new Task(timeInSecond, () -> {
-            runnable.run();
-            resultCraftQueue.pollLast();
-            System.out.println(resultCraftQueue);
-            System.out.println("run");
-            if (craftQueue.size() != 0) {
-                isCrafting = true;
-                toAdd.add(craftQueue.pollLast());
-            } else {
-                isCrafting = false;
+    /**
+     * Donne une commande en attente à chaque emplacement libre (appelé sous le
+     * verrou de la simulation).
+     */
+    private static void fillCraftSlots() {
+        for (int slot = 0; slot < craftSlots.length && !craftQueue.isEmpty(); slot++) {
+            if (craftSlots[slot] == null) {
+                craftSlots[slot] = craftQueue.poll();
+                startCraftChunk(slot);
             }
-        });
-        if (!isCrafting) {
-            isCrafting = true;
-            toAdd.add(newTask);
-        } else {
-            craftQueue.add(newTask);
         }
-        resultCraftQueue.add(result);
+    }
+
+    /**
+     * Programme le prochain paquet de la commande d'un emplacement (appelé sous
+     * le verrou de la simulation).
+     */
+    private static void startCraftChunk(int slot) {
+        CraftOrder order = craftSlots[slot];
+        int chunk = order.nextChunk();
+        add(new Task(chunk * order.getSecondsPerCraft(), () -> {
+            order.deliver(chunk);
+            if (order.isDone()) {
+                craftSlots[slot] = null;
+                fillCraftSlots();
+            } else {
+                startCraftChunk(slot);
+            }
+            if (onCraftProgress != null)
+                onCraftProgress.run();
+        }));
+    }
+
+    /**
+     * Définit l'action appelée après chaque livraison d'une commande de craft
+     * (par exemple la mise à jour de la vue). Remplace la précédente.
+     *
+     * @param listener l'action, ou null
+     */
+    public static void setCraftListener(Runnable listener) {
+        onCraftProgress = listener;
     }
 
     public static int getIntervale() {
         return interval;
     }
 
-    public static LinkedList<Objet> getResultCraftQueue() {
-        return resultCraftQueue;
+    /**
+     * @return une copie des commandes de craft en cours, par emplacement (null
+     *         si l'emplacement est libre)
+     */
+    public static CraftOrder[] getCraftSlots() {
+        synchronized (SimulationClock.getLock()) {
+            return craftSlots.clone();
+        }
+    }
+
+    /**
+     * @return une copie des commandes de craft pas encore terminées : celles en
+     *         cours puis celles en attente, dans l'ordre où elles passeront
+     */
+    public static List<CraftOrder> getCraftOrders() {
+        synchronized (SimulationClock.getLock()) {
+            List<CraftOrder> orders = new ArrayList<>();
+            for (CraftOrder order : craftSlots) {
+                if (order != null)
+                    orders.add(order);
+            }
+            CraftOrder[] waiting = craftQueue.toArray(new CraftOrder[0]);
+            Arrays.sort(waiting, CraftOrder.QUEUE_ORDER);
+            orders.addAll(Arrays.asList(waiting));
+            return orders;
+        }
     }
 
 }
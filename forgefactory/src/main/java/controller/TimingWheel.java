@@ -0,0 +1,212 @@
+package main.java.controller;
+
+import java.util.ArrayList;
+
+/**
+ * La classe TimingWheel est une roue temporelle hiérarchique utilisée par la
+ * Timeline pour ordonnancer les tâches.
+ *
+ * Chaque niveau contient 64 cases ; une case du niveau 0 vaut un tick, une case
+ * du niveau n vaut 64^n ticks. Une tâche est rangée dans le niveau le plus bas
+ * qui peut contenir son échéance, puis redescend d'un niveau à chaque fois que
+ * le niveau inférieur fait un tour complet. L'ajout, l'annulation et
+ * l'expiration coûtent O(1) (amorti) et un tick ne parcourt que les tâches
+ * arrivées à échéance.
+ *
+ * Les tâches échues d'un tick sont d'abord détachées de la roue, puis
+ * traitées dans l'ordre de la roue par lots : chaque suite de tâches
+ * parallèles voit ses calculs exécutés ensemble (sur le pool ForkJoin commun
+ * s'ils sont assez nombreux), puis ses validations une par une ; une tâche
+ * ordinaire s'exécute seule entre deux lots. Juste avant son calcul, on
+ * vérifie qu'une tâche n'a pas été annulée ou reprogrammée par une tâche
+ * précédente : elle ne laisse alors aucun effet. Une tâche dont le calcul est
+ * fait reçoit toujours sa validation ; une annulation arrivée entre les deux
+ * ne vaut que pour les exécutions suivantes. Comme chaque calcul ne touche
+ * qu'à son propre état, le résultat est identique à une exécution en série.
+ */
+final class TimingWheel {
+    private static final int SLOT_BITS = 6; // 64 cases par niveau
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4; // 64^4 ticks, soit environ 24 jours à 125 ms
+    private static final int OVERFLOW = LEVELS; // niveau fictif pour les échéances trop lointaines
+    static final int UNSCHEDULED = -1; // tâche hors de la roue
+    static final int RUNNING = -2; // tâche en cours d'exécution
+    private static final int PARALLEL_THRESHOLD = 64; // en dessous, les calculs restent en série
+
+    private final TaskHandle[][] wheels = new TaskHandle[LEVELS + 1][SLOTS]; // têtes des listes chaînées
+    private long now = 0; // numéro du dernier tick traité
+    private int size = 0; // nombre de tâches en attente
+    private final ArrayList<TaskHandle> due = new ArrayList<>(); // tâches échues du tick en cours
+    private final ArrayList<TaskHandle> parallel = new ArrayList<>(); // calculs du lot en cours
+
+    /**
+     * Programme (ou reprogramme) une tâche pour qu'elle s'exécute dans
+     * {@code delay} ticks (0 pour le prochain tick).
+     *
+     * @param handle la poignée de la tâche
+     * @param delay  le nombre de ticks à attendre en plus du prochain
+     */
+    void schedule(TaskHandle handle, int delay) {
+        cancel(handle);
+        handle.setDeadline(now + Math.max(0, delay) + 1);
+        insert(handle);
+        size++;
+    }
+
+    /**
+     * Retire une tâche de la roue. Sans effet si elle n'y est plus.
+     *
+     * @param handle la poignée de la tâche
+     * @return true si la tâche était programmée
+     */
+    boolean cancel(TaskHandle handle) {
+        if (handle.level == RUNNING) {
+            handle.level = UNSCHEDULED;
+            return true;
+        }
+        if (handle.level == UNSCHEDULED)
+            return false;
+        unlink(handle);
+        size--;
+        return true;
+    }
+
+    /**
+     * Avance la roue d'un tick et exécute les tâches arrivées à échéance.
+     * Les tâches ajoutées pendant l'exécution tombent toujours dans une autre
+     * case, elles seront donc traitées aux ticks suivants. Une tâche périodique
+     * est remise dans la roue après son exécution, sauf si elle a été annulée ou
+     * reprogrammée entre-temps.
+     */
+    void tick() {
+        now++;
+        cascade();
+        int slot = (int) (now & MASK);
+        TaskHandle handle;
+        // détache toutes les tâches échues et les marque comme en cours : un
+        // cancel() pendant le tick les arrête
+        while ((handle = wheels[0][slot]) != null) {
+            unlink(handle);
+            size--;
+            handle.level = RUNNING;
+            due.add(handle);
+        }
+        int i = 0;
+        while (i < due.size()) {
+            // phase de calcul du lot de tâches parallèles qui commence ici, en
+            // sautant celles annulées ou reprogrammées par une tâche précédente
+            int end = i;
+            while (end < due.size() && due.get(end).isParallel()) {
+                if (due.get(end).level == RUNNING)
+                    parallel.add(due.get(end));
+                end++;
+            }
+            if (parallel.size() >= PARALLEL_THRESHOLD) {
+                parallel.parallelStream().forEach(TaskHandle::compute);
+            } else {
+                parallel.forEach(TaskHandle::compute);
+            }
+            parallel.clear();
+            if (end == i)
+                end = i + 1; // une tâche ordinaire, seule
+            // phase de validation, dans l'ordre
+            for (; i < end; i++) {
+                finish(due.get(i));
+            }
+        }
+        due.clear();
+    }
+
+    /**
+     * Termine une tâche échue : exécute sa partie dans l'ordre puis la remet
+     * dans la roue si elle est périodique et n'a été ni annulée ni reprogrammée.
+     */
+    private void finish(TaskHandle handle) {
+        if (handle.level != RUNNING && !handle.computed)
+            return; // annulée ou reprogrammée avant d'avoir commencé
+        handle.runInOrder();
+        if (handle.level == RUNNING) {
+            handle.level = UNSCHEDULED;
+            if (handle.isPeriodic()) {
+                handle.nextDeadline(now);
+                insert(handle);
+                size++;
+            }
+        }
+    }
+
+    /**
+     * @return le nombre de tâches en attente
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return le numéro du dernier tick traité
+     */
+    long now() {
+        return now;
+    }
+
+    /**
+     * Fait redescendre les tâches des niveaux supérieurs lorsque les niveaux
+     * inférieurs ont terminé un tour.
+     */
+    private void cascade() {
+        int level = 1;
+        while (level <= LEVELS && (now & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+            level++;
+        }
+        // on commence par le niveau le plus haut pour que les tâches puissent
+        // descendre de plusieurs niveaux pendant le même tick
+        for (int l = level - 1; l >= 1; l--) {
+            int slot = l == OVERFLOW ? 0 : (int) ((now >> (SLOT_BITS * l)) & MASK);
+            TaskHandle handle = wheels[l][slot];
+            wheels[l][slot] = null;
+            while (handle != null) {
+                TaskHandle next = handle.next;
+                handle.prev = null;
+                handle.next = null;
+                insert(handle);
+                handle = next;
+            }
+        }
+    }
+
+    /**
+     * Range une tâche dans le plus petit niveau capable de contenir son échéance.
+     */
+    private void insert(TaskHandle handle) {
+        int level = 0;
+        while (level < LEVELS
+                && (handle.deadline >> (SLOT_BITS * (level + 1))) != (now >> (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = level == OVERFLOW ? 0 : (int) ((handle.deadline >> (SLOT_BITS * level)) & MASK);
+        handle.level = level;
+        handle.slot = slot;
+        handle.prev = null;
+        handle.next = wheels[level][slot];
+        if (handle.next != null)
+            handle.next.prev = handle;
+        wheels[level][slot] = handle;
+    }
+
+    /**
+     * Détache une tâche de sa liste en temps constant.
+     */
+    private void unlink(TaskHandle handle) {
+        if (handle.prev != null) {
+            handle.prev.next = handle.next;
+        } else {
+            wheels[handle.level][handle.slot] = handle.next;
+        }
+        if (handle.next != null)
+            handle.next.prev = handle.prev;
+        handle.prev = null;
+        handle.next = null;
+        handle.level = UNSCHEDULED;
+    }
+}
@@ -1,20 +0,0 @@
-package main.java.model.Enum;
-
-public enum Item {
-    APPLE,
-    WOOD,
-    STEEL,
-    STONE,
-    PIE,
-    JAM,
-    WOODAXE,
-    STONEAXE,
-    STEELAXE,
-    INGOT,
-    STEELBLOCK,
-    BRICK,
-    PLANKS,
-    ROOF,
-    HOUSE,
-    BERRIES
-}
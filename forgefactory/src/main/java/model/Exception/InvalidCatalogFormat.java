@@ -0,0 +1,9 @@
+package main.java.model.Exception;
+
+public class InvalidCatalogFormat extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public InvalidCatalogFormat(String s) {
+        super(s);
+    }
+}
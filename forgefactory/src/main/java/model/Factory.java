@@ -1,9 +1,17 @@
 package main.java.model;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import main.java.controller.Timeline;
 import main.java.model.Enum.BonusMachine;
 import main.java.model.Exception.InvalidSaveFormat;
 import main.java.model.storage.DB;
+import main.java.model.storage.Value;
+import main.java.model.util.Couple;
+import main.java.model.util.Objet;
 import main.java.model.util.Recipe;
 
 /**
@@ -12,17 +20,17 @@ import main.java.model.util.Recipe;
  * It extends the Machine class and provides functionality to save and restore
  * its state.
  * 
- * The "recipe" acts as a reference to a Recipe object, and its value can be
- * updated
- * without changing the reference itself. The class includes mechanisms to
- * handle
- * complex task scheduling and bonus configurations.
+ * The current recipe is stored as an index into DB.recipeMap in the factory's
+ * row of the MachineStore, and can be changed at any time. The class includes
+ * mechanisms to handle complex task scheduling and bonus configurations.
+ *
+ * A factory can also be given a prioritized list of recipes (multi-recipe
+ * mode). After each cycle it picks the first recipe of the list that can run
+ * with its inventory and whose result is still wanted, so one machine can feed
+ * a whole chain (for example BRICK, PLANKS and ROOF for a HOUSE).
  */
 public class Factory extends Machine {
 
-    // Reference to a single Recipe object, used for processing tasks.
-    private final Recipe[] recipeReference = new Recipe[1];
-
     /**
      * Constructor for Factory.
      * This initializes the Factory with a set of bonuses and assigns a default
@@ -32,7 +40,7 @@ public class Factory extends Machine {
      */
     public Factory(HashMap<BonusMachine, Integer> bonuses) {
         super(bonuses);
-        recipeReference[0] = DB.recipeMap.get(0); // Default recipe assignment.
+        setRecipe(DB.recipeMap.get(0)); // Default recipe assignment.
     }
 
     /**
@@ -59,7 +67,8 @@ public class Factory extends Machine {
      * @return The current Recipe object.
      */
     public Recipe getRecipe() {
-        return recipeReference[0];
+        int index = MachineStore.program[id];
+        return index == MachineStore.NONE ? null : DB.recipeMap.get(index);
     }
 
     /**
@@ -68,7 +77,261 @@ public class Factory extends Machine {
      * @param recipe The new Recipe to associate with the Factory.
      */
     public void setRecipe(Recipe recipe) {
-        this.recipeReference[0] = recipe;
+        MachineStore.program[id] = recipe == null ? MachineStore.NONE : DB.recipeMap.getIndexOf(recipe);
+        updateReservations();
+    }
+
+    /**
+     * Splits the inventory into input slots and an output buffer: one cycle of
+     * each ingredient and one cycle of result are reserved for every recipe the
+     * Factory can run (the current one, or the whole list in multi-recipe
+     * mode). The rest of the capacity is shared.
+     */
+    private void updateReservations() {
+        Inventory inventory = getInventory();
+        inventory.clearReservations();
+        List<Recipe> recipes = isMultiRecipe() ? getRecipeList()
+                : getRecipe() == null ? Collections.emptyList() : Collections.singletonList(getRecipe());
+        for (Recipe recipe : recipes) {
+            for (Couple<Objet, Integer> ingredient : recipe.getIngredients()) {
+                reserveAtLeast(ingredient.getKey(), ingredient.getValue());
+            }
+            reserveAtLeast(recipe.getResult(), recipe.getResultQuantity());
+        }
+    }
+
+    /**
+     * Raises the reservation of an item to a given quantity if it is lower.
+     */
+    private void reserveAtLeast(Objet item, long quantity) {
+        if (getInventory().getReservation(item) < quantity)
+            getInventory().setReservation(item, quantity);
+    }
+
+    /**
+     * Gets the prioritized recipe list of the Factory.
+     *
+     * @return The recipes, highest priority first (empty outside multi-recipe
+     *         mode).
+     */
+    public List<Recipe> getRecipeList() {
+        int[] list = MachineStore.recipeLists[id];
+        if (list == null)
+            return Collections.emptyList();
+        List<Recipe> recipes = new ArrayList<>(list.length);
+        for (int index : list) {
+            recipes.add(DB.recipeMap.get(index));
+        }
+        return recipes;
+    }
+
+    /**
+     * Sets the prioritized recipe list of the Factory. An empty list leaves
+     * multi-recipe mode and keeps the current recipe.
+     *
+     * @param recipes The recipes, highest priority first.
+     */
+    public void setRecipeList(List<Recipe> recipes) {
+        if (recipes == null || recipes.isEmpty()) {
+            MachineStore.recipeLists[id] = null;
+            updateReservations();
+            return;
+        }
+        int[] list = new int[recipes.size()];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = DB.recipeMap.getIndexOf(recipes.get(i));
+        }
+        MachineStore.recipeLists[id] = list;
+        if (getRecipe() == null || !recipes.contains(getRecipe()))
+            setRecipe(recipes.get(0));
+        updateReservations();
+    }
+
+    /**
+     * Checks whether the Factory chooses its recipe from a list.
+     *
+     * @return true in multi-recipe mode.
+     */
+    public boolean isMultiRecipe() {
+        return MachineStore.recipeLists[id] != null;
+    }
+
+    /**
+     * Chooses the recipe of the next cycle in multi-recipe mode: the first
+     * recipe of the list that is wanted and can run with the inventory.
+     * The current recipe is kept when none can run.
+     *
+     * @return true if a runnable recipe was found.
+     */
+    public boolean selectNextRecipe() {
+        int[] list = MachineStore.recipeLists[id];
+        if (list == null)
+            return false;
+        for (int index : list) {
+            Recipe recipe = DB.recipeMap.get(index);
+            if (isWanted(recipe) && hasOutputSpace(recipe) && getInventory().getCraftableCount(recipe) > 0) {
+                MachineStore.program[id] = index;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the result of a recipe is still wanted. Outside
+     * multi-recipe mode, or when no other recipe of the list uses it, it always
+     * is. Otherwise the factory keeps just enough of it for one cycle of each
+     * recipe of the list that consumes it.
+     *
+     * @param recipe The recipe to check.
+     * @return true if the recipe should run.
+     */
+    public boolean isWanted(Recipe recipe) {
+        long demand = getDemandFor(recipe);
+        return demand == 0 || getInventory().getQuantityOf(recipe.getResult()) < demand;
+    }
+
+    /**
+     * Sums what the other recipes of the list need of a recipe's result for one
+     * cycle each.
+     *
+     * @param recipe The recipe producing the item.
+     * @return The quantity to keep in stock, 0 if nothing in the list uses it.
+     */
+    private long getDemandFor(Recipe recipe) {
+        int[] list = MachineStore.recipeLists[id];
+        if (list == null)
+            return 0;
+        int result = recipe.getResult().getId();
+        long demand = 0;
+        for (int index : list) {
+            Recipe consumer = DB.recipeMap.get(index);
+            if (consumer == recipe)
+                continue;
+            for (Couple<Objet, Integer> ingredient : consumer.getIngredients()) {
+                if (ingredient.getKey().getId() == result)
+                    demand += ingredient.getValue();
+            }
+        }
+        return demand;
+    }
+
+    /**
+     * Checks whether the output buffer can receive the result of one cycle of a
+     * recipe. The space of the consumed ingredients only counts above their
+     * input slots, which stay reserved for the next inputs. When this is false
+     * the Factory is held back until its output is drained.
+     *
+     * @param recipe The recipe to check.
+     * @return true if the result fits.
+     */
+    public boolean hasOutputSpace(Recipe recipe) {
+        return getInventory().getSpaceLeftAfter(recipe, 1) >= 0;
+    }
+
+    /**
+     * Gets the duration of one production cycle, which is the time of the
+     * current recipe.
+     *
+     * @return The cycle time in seconds.
+     */
+    @Override
+    public int getCycleTime() {
+        return getRecipe().getTime();
+    }
+
+    /**
+     * Gets the real duration of one cycle of a given recipe, as the timeline
+     * would run it (at least one tick).
+     *
+     * @param recipe The recipe.
+     * @return The cycle time in seconds.
+     */
+    public double getEffectiveCycleTime(Recipe recipe) {
+        return getCycleTicks(recipe) * Timeline.getIntervale() / 1000.0;
+    }
+
+    /**
+     * @return the duration of one cycle of a recipe in ticks (at least one tick)
+     */
+    private static double getCycleTicks(Recipe recipe) {
+        return Math.max(1, recipe.getTime() * 1000.0 / Timeline.getIntervale());
+    }
+
+    /**
+     * Advances the Factory by a given duration in a single computation. In
+     * multi-recipe mode each run stops once the stock wanted by the list is
+     * reached, so the runs are chained: the next recipe of the list is chosen
+     * and runs for what is left of the duration, at its own cycle time, until
+     * the time is spent or no recipe can run.
+     *
+     * @param elapsed The elapsed duration.
+     * @return The number of cycles actually done.
+     */
+    @Override
+    public int advance(Duration elapsed) {
+        if (!isMultiRecipe())
+            return super.advance(elapsed);
+        double ticks = elapsed.toMillis() / Timeline.getIntervale();
+        int total = 0;
+        while (selectNextRecipe()) {
+            double cycleTicks = getCycleTicks(getRecipe());
+            int done = advanceCycles((long) (ticks / cycleTicks));
+            if (done == 0)
+                break;
+            total += done;
+            ticks -= done * cycleTicks;
+        }
+        return total;
+    }
+
+    /**
+     * Computes how many times in a row the current recipe can be crafted with
+     * the ingredients in the inventory and the free space left for the results.
+     *
+     * @return The number of possible cycles.
+     */
+    @Override
+    protected long getCycleLimit() {
+        Recipe recipe = getRecipe();
+        if (recipe == null)
+            return 0;
+        long limit = Math.min(getInventory().getCraftableCount(recipe), Integer.MAX_VALUE);
+        // The results of every cycle must fit in the output buffer: the largest
+        // number of cycles that fits is found by dichotomy (the counts that fit
+        // form a range starting at 0)
+        long fitting = 0;
+        while (fitting < limit) {
+            long middle = (fitting + limit + 1) / 2;
+            if (getInventory().getSpaceLeftAfter(recipe, middle) >= 0)
+                fitting = middle;
+            else
+                limit = middle - 1;
+        }
+        limit = fitting;
+        // In multi-recipe mode, stop once the stock wanted by the list is reached
+        long demand = getDemandFor(recipe);
+        if (demand > 0) {
+            long missing = demand - getInventory().getQuantityOf(recipe.getResult());
+            limit = Math.min(limit, Math.max(0, (missing + recipe.getResultQuantity() - 1) / recipe.getResultQuantity()));
+        }
+        return limit;
+    }
+
+    /**
+     * Consumes the ingredients and adds the results of several cycles at once.
+     *
+     * @param cycles The number of cycles to apply.
+     */
+    @Override
+    protected void produce(int cycles) {
+        Recipe recipe = getRecipe();
+        if (!getInventory().tryConsume(recipe, cycles)) {
+            Value.printError("Un item est manquant");
+            return;
+        }
+        getInventory().addItem(recipe.getResult(), recipe.getResultQuantity() * cycles);
+        selectNextRecipe();
     }
 
     /**
@@ -79,7 +342,19 @@ public class Factory extends Machine {
      */
     @Override
     public String save() {
-        return super.save() + "," + " " + "," + DB.recipeMap.getIndexOf(recipeReference[0]);
+        // the recipe list takes the place of the old blank field
+        int[] list = MachineStore.recipeLists[id];
+        String recipes = " ";
+        if (list != null) {
+            StringBuilder joined = new StringBuilder();
+            for (int index : list) {
+                if (joined.length() > 0)
+                    joined.append('+');
+                joined.append(index);
+            }
+            recipes = joined.toString();
+        }
+        return super.save() + "," + recipes + "," + MachineStore.program[id];
     }
 
     /**
@@ -93,7 +368,19 @@ public class Factory extends Machine {
         String[] factoryStateParts = serializedState.split(",");
 
         // Restore the recipe from the serialized state.
-        this.recipeReference[0] = DB.recipeMap.get(Integer.parseInt(factoryStateParts[factoryStateParts.length - 1]));
+        setRecipe(DB.recipeMap.get(Integer.parseInt(factoryStateParts[factoryStateParts.length - 1])));
+
+        // Restore the recipe list, blank outside multi-recipe mode.
+        String recipes = factoryStateParts[factoryStateParts.length - 2].trim();
+        if (!recipes.isEmpty()) {
+            List<Recipe> list = new ArrayList<>();
+            for (String index : recipes.split("\\+")) {
+                list.add(DB.recipeMap.get(Integer.parseInt(index)));
+            }
+            int current = MachineStore.program[id];
+            setRecipeList(list);
+            MachineStore.program[id] = current;
+        }
 
         // Restore the inventory and bonuses using the parent class's restore method.
         super.restore(serializedState);
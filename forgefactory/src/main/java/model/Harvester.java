@@ -5,6 +5,7 @@ import main.java.model.Enum.BonusMachine;
 import main.java.model.Exception.InvalidSaveFormat;
 import main.java.model.storage.DB;
 import main.java.model.storage.Value;
+import main.java.model.util.Objet;
 
 /**
  * La classe Harvester représente une machine de récolte dans le jeu.
@@ -12,12 +13,8 @@ import main.java.model.storage.Value;
  * pour la récolte de ressources.
  */
 public class Harvester extends Machine {
-
-    /**
-     * La ressource que cette machine récolte.
-     * Utilise un élément de la liste des ressources définie dans Map.List.
-     */
-    private Map.ResourceList resource;
+    // Les ressources par rang, pour relire la colonne du MachineStore
+    private static final Map.ResourceList[] RESOURCES = Map.ResourceList.values();
 
     /**
      * Constructeur de Harvester avec des coordonnées et une liste de bonus.
@@ -28,7 +25,7 @@ public class Harvester extends Machine {
      */
     public Harvester(Map.ResourceList resource, HashMap<BonusMachine, Integer> bonus) {
         super(bonus); // Appelle le constructeur de la classe Machine.
-        this.resource = resource;
+        setResource(resource);
     }
 
     /**
@@ -51,7 +48,9 @@ public class Harvester extends Machine {
      * @return La ressource actuellement attribuée.
      */
     public Map.ResourceList getResource() {
-        return this.resource;
+        // la ressource est rangée par son rang dans Map.ResourceList
+        int ordinal = MachineStore.program[id];
+        return ordinal == MachineStore.NONE ? null : RESOURCES[ordinal];
     }
 
     /**
@@ -60,7 +59,45 @@ public class Harvester extends Machine {
      * @param resource La ressource à attribuer à la machine.
      */
     public void setResource(Map.ResourceList resource) {
-        this.resource = resource;
+        MachineStore.program[id] = resource == null ? MachineStore.NONE : resource.ordinal();
+    }
+
+    /**
+     * Retourne la durée d'un cycle de récolte, réduite par le bonus de vitesse.
+     *
+     * @return La durée d'un cycle, en secondes.
+     */
+    @Override
+    public int getCycleTime() {
+        if (getResource() == null)
+            return 0;
+        Objet item = DB.itemOf(getResource());
+        return (int) ((1 - getExtraSpeed()) * Math.max(item.getDuration(), item.getRecovery()));
+    }
+
+    /**
+     * Calcule le nombre de récoltes qui tiennent encore dans l'inventaire.
+     *
+     * @return Le nombre de cycles possibles.
+     */
+    @Override
+    protected long getCycleLimit() {
+        if (getResource() == null)
+            return 0;
+        int quantity = DB.itemOf(getResource()).getQuantity();
+        int free = getInventorySize() - getInventoryCount();
+        return quantity == 0 ? Long.MAX_VALUE : Math.max(0, free) / quantity;
+    }
+
+    /**
+     * Ajoute d'un coup le résultat de plusieurs récoltes.
+     *
+     * @param cycles Le nombre de récoltes à appliquer.
+     */
+    @Override
+    protected void produce(int cycles) {
+        Objet item = DB.itemOf(getResource());
+        getInventory().addItem(item, item.getQuantity() * cycles);
     }
 
     /**
@@ -72,7 +109,7 @@ public class Harvester extends Machine {
     @Override
     public String save() {
         // Ajoute la représentation de la ressource à l'état sauvegardé.
-        return super.save() + "," + DB.ListToInt.get(resource);
+        return super.save() + "," + getResource().ordinal();
     }
 
     /**
@@ -92,10 +129,10 @@ public class Harvester extends Machine {
             super.restore(s);
 
             // Restaure la ressource actuelle en utilisant la dernière partie de la chaîne.
-            this.resource = DB.intToList.get(Integer.valueOf(harvesterString[harvesterString.length - 1]));
+            setResource(DB.resourceOf(Integer.valueOf(harvesterString[harvesterString.length - 1])));
         } catch (Exception e) {
             Value.printError(
-                    "erreur lors du chargement d'un collecteur de ressource \nRessource associé : " + resource);
+                    "erreur lors du chargement d'un collecteur de ressource \nRessource associé : " + getResource());
             // Lance une exception en cas de format invalide.
             throw new InvalidSaveFormat();
         }
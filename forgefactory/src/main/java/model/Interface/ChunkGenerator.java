@@ -0,0 +1,10 @@
+package main.java.model.Interface;
+
+import main.java.model.World;
+
+/**
+ * Remplit un chunk du monde la première fois qu'on y accède.
+ */
+public interface ChunkGenerator {
+    void generate(World.Chunk chunk);
+}
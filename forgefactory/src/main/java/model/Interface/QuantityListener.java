@@ -0,0 +1,8 @@
+package main.java.model.Interface;
+
+/**
+ * Reçoit chaque changement de quantité d'un objet dans un inventaire.
+ */
+public interface QuantityListener {
+    void quantityChanged(int itemId, long oldQuantity, long newQuantity);
+}
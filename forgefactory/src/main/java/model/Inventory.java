@@ -1,23 +1,45 @@
 package main.java.model;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import main.java.model.Exception.NotFound;
+import main.java.model.Interface.QuantityListener;
 import main.java.model.Interface.Savable;
 import main.java.model.storage.DB;
+import main.java.model.util.Couple;
 import main.java.model.util.Objet;
+import main.java.model.util.Recipe;
 
 /**
  * Inventory class represents the player's inventory.
  * It provides methods to manage the inventory by adding, removing, and
  * retrieving items.
+ *
+ * Quantities are stored in a dense array indexed by item id (the rank in the
+ * catalog), with a bitset of the non-empty slots for fast iteration, so adding,
+ * removing and reading quantities never allocate.
+ *
+ * Part of the capacity can be reserved for given items (the input slots and
+ * output buffer of a machine). Space reserved for an item and not yet filled
+ * by it cannot be used by other items, so a machine whose results pile up
+ * still has room for the ingredients of its next cycle.
  */
 public class Inventory implements Savable {
-    private final Map<Objet, Integer> items = new HashMap<>(); // Stores items and their quantities.
+    private static final int ITEM_TYPES = DB.item.length;
+
+    private final long[] counts = new long[ITEM_TYPES]; // Quantity of each item, by item id.
+    private final long[] occupied = new long[(ITEM_TYPES + 63) >>> 6]; // Bitset of the non-empty slots.
+    private final long[] reserved = new long[ITEM_TYPES]; // Space reserved for each item, by item id.
+    private long unusedReserved; // Reserved space not filled by its item yet.
     private int capacity; // Maximum capacity of the inventory.
     private int currentCount; // Current total count of items in the inventory.
+    private long version; // Incremented on every change of the content.
+    private Runnable onItemAdded; // One-shot callback run on the next item added.
+    private Runnable onSpaceFreed; // One-shot callback run the next time space is freed.
+    private QuantityListener quantityListener; // Told about every quantity change.
 
     /**
      * Constructs an Inventory with the specified size.
@@ -37,9 +59,21 @@ public class Inventory implements Savable {
      */
     public void addItem(Objet item, int quantity) {
         if (quantity < 0) throw  new RuntimeException("Illegal quantity");
-        int newQuantity = items.getOrDefault(item, 0) + quantity ;
-        items.put(item, newQuantity < 0 ? Integer.MAX_VALUE : newQuantity);
+        int id = item.getId();
+        long old = counts[id];
+        counts[id] = Math.min(counts[id] + quantity, Integer.MAX_VALUE);
+        if (counts[id] != 0)
+            occupied[id >>> 6] |= 1L << id;
         currentCount += quantity;
+        unusedReserved += unused(id, counts[id]) - unused(id, old);
+        version++;
+        if (quantityListener != null && counts[id] != old)
+            quantityListener.quantityChanged(id, old, counts[id]);
+        if (quantity > 0 && onItemAdded != null) {
+            Runnable callback = onItemAdded;
+            onItemAdded = null;
+            callback.run();
+        }
     }
 
     /**
@@ -51,18 +85,320 @@ public class Inventory implements Savable {
      *                  the inventory.
      */
     public void removeItem(Objet item, int quantity) throws NotFound {
-        if (!items.containsKey(item)) {
+        int id = item.getId();
+        if (counts[id] == 0) {
             throw new NotFound("The requested item is not in the inventory.");
         }
-        int currentQuantity = items.get(item);
-        if (currentQuantity < quantity) {
+        if (counts[id] < quantity) {
             throw new NotFound("Not enough quantity of the item in the inventory.");
         }
-        items.put(item, currentQuantity - quantity);
+        counts[id] -= quantity;
         currentCount -= quantity;
-        if (items.get(item) == 0) {
-            items.remove(item);
+        unusedReserved += unused(id, counts[id]) - unused(id, counts[id] + quantity);
+        version++;
+        if (counts[id] == 0) {
+            occupied[id >>> 6] &= ~(1L << id);
+        }
+        if (quantityListener != null && quantity != 0)
+            quantityListener.quantityChanged(id, counts[id] + quantity, counts[id]);
+        if (quantity > 0)
+            spaceFreed();
+    }
+
+    /**
+     * Computes how many times the ingredients of a recipe are available in the
+     * inventory. An item listed several times in the recipe is counted once with
+     * the total quantity.
+     *
+     * @param recipe The recipe to check.
+     * @return The number of times the recipe can be consumed.
+     */
+    public long getCraftableCount(Recipe recipe) {
+        Couple<Objet, Integer>[] ingredients = recipe.getIngredients();
+        long result = Long.MAX_VALUE;
+        for (int i = 0; i < ingredients.length; i++) {
+            int id = ingredients[i].getKey().getId();
+            long needed = 0;
+            for (Couple<Objet, Integer> other : ingredients) {
+                if (other.getKey().getId() == id)
+                    needed += other.getValue();
+            }
+            if (needed > 0)
+                result = Math.min(result, counts[id] / needed);
+        }
+        return result;
+    }
+
+    /**
+     * Consumes the ingredients of a recipe the given number of times in a single
+     * step: either every ingredient is removed, or nothing changes.
+     *
+     * @param recipe The recipe whose ingredients are consumed.
+     * @param times  The number of times to consume them.
+     * @return true if the ingredients were consumed.
+     */
+    public boolean tryConsume(Recipe recipe, int times) {
+        if (times < 0 || getCraftableCount(recipe) < times)
+            return false;
+        consume(recipe, times);
+        return true;
+    }
+
+    /**
+     * Removes several items in a single step: either every quantity is removed,
+     * or nothing changes.
+     *
+     * @param quantities The quantities to remove, indexed by item id.
+     * @return true if the items were removed.
+     */
+    public boolean tryConsume(long[] quantities) {
+        for (int id = 0; id < quantities.length; id++) {
+            if (quantities[id] < 0 || counts[id] < quantities[id])
+                return false;
         }
+        boolean removed = false;
+        for (int id = 0; id < quantities.length; id++) {
+            if (quantities[id] > 0) {
+                take(id, quantities[id]);
+                removed = true;
+            }
+        }
+        if (removed)
+            spaceFreed();
+        return true;
+    }
+
+    /**
+     * Copies the quantities of every item, indexed by item id.
+     *
+     * @return A new array with the quantities.
+     */
+    public long[] getQuantities() {
+        return counts.clone();
+    }
+
+    /**
+     * Gets a number that changes every time the content of the inventory
+     * changes, to know cheaply whether something computed from it is outdated.
+     *
+     * @return The version of the content.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Consumes the ingredients of a recipe as many times as possible, up to a
+     * limit ("craft as many as possible").
+     *
+     * @param recipe   The recipe whose ingredients are consumed.
+     * @param maxTimes The maximum number of times to consume them.
+     * @return The number of times the ingredients were consumed.
+     */
+    public int consumeAsManyAsPossible(Recipe recipe, int maxTimes) {
+        int times = (int) Math.max(0, Math.min(maxTimes, getCraftableCount(recipe)));
+        consume(recipe, times);
+        return times;
+    }
+
+    /**
+     * Moves some items to another inventory in a single step: either all of them
+     * are moved, or nothing changes (not enough items here, or not enough space
+     * in the target).
+     *
+     * @param target   The inventory receiving the items.
+     * @param item     The item to move.
+     * @param quantity The quantity to move.
+     * @return true if the items were moved.
+     */
+    public boolean tryTransfer(Inventory target, Objet item, int quantity) {
+        if (quantity < 0 || counts[item.getId()] < quantity || target.getFreeSpaceFor(item) < quantity)
+            return false;
+        transfer(target, item.getId(), quantity);
+        return true;
+    }
+
+    /**
+     * Moves as many items as possible to another inventory, up to a limit.
+     *
+     * @param target      The inventory receiving the items.
+     * @param item        The item to move.
+     * @param maxQuantity The maximum quantity to move.
+     * @return The quantity actually moved.
+     */
+    public int transferAsManyAsPossible(Inventory target, Objet item, int maxQuantity) {
+        int quantity = (int) Math.max(0,
+                Math.min(maxQuantity, Math.min(counts[item.getId()], target.getFreeSpaceFor(item))));
+        transfer(target, item.getId(), quantity);
+        return quantity;
+    }
+
+    /**
+     * Moves every item to another inventory, as much as the target can hold, in
+     * item id order.
+     *
+     * @param target The inventory receiving the items.
+     * @return The total quantity moved.
+     */
+    public long transferAll(Inventory target) {
+        long moved = 0;
+        for (int id = nextItemId(0); id >= 0; id = nextItemId(id + 1)) {
+            int quantity = (int) Math.min(counts[id], target.getFreeSpaceFor(DB.item[id]));
+            if (quantity == 0)
+                continue;
+            take(id, quantity);
+            target.addItem(DB.item[id], quantity);
+            moved += quantity;
+        }
+        if (moved > 0)
+            spaceFreed();
+        return moved;
+    }
+
+    /**
+     * Gets the space left in the inventory for items without a reservation.
+     *
+     * @return The number of such items that can still be added.
+     */
+    public long getFreeSpace() {
+        return Math.max(0, (long) capacity - currentCount - unusedReserved);
+    }
+
+    /**
+     * Gets the space left in the inventory for a given item: the shared space
+     * plus what is still reserved for this item.
+     *
+     * @param item The item to add.
+     * @return The number of items of this kind that can still be added.
+     */
+    public long getFreeSpaceFor(Objet item) {
+        int id = item.getId();
+        return Math.max(0, (long) capacity - currentCount - unusedReserved + unused(id, counts[id]));
+    }
+
+    /**
+     * Computes the space that would be left for the result of a recipe after
+     * running it here several times: ingredients removed, results added, and the
+     * space reserved for the other items kept free.
+     *
+     * @param recipe The recipe.
+     * @param times  The number of cycles, with ingredients available.
+     * @return The space left, negative if the results do not fit.
+     */
+    public long getSpaceLeftAfter(Recipe recipe, long times) {
+        Couple<Objet, Integer>[] ingredients = recipe.getIngredients();
+        int result = recipe.getResult().getId();
+        long count = currentCount + (recipe.getResultQuantity() - (long) recipe.sum()) * times;
+        long resultAfter = counts[result] + (recipe.getResultQuantity() - ingredientTotal(recipe, result)) * times;
+        long unusedAfter = unusedReserved + unused(result, resultAfter) - unused(result, counts[result]);
+        for (int i = 0; i < ingredients.length; i++) {
+            int id = ingredients[i].getKey().getId();
+            if (id == result || firstIndexOf(ingredients, id) != i)
+                continue; // item already counted
+            long after = counts[id] - ingredientTotal(recipe, id) * times;
+            unusedAfter += unused(id, after) - unused(id, counts[id]);
+        }
+        return capacity - count - (unusedAfter - unused(result, resultAfter));
+    }
+
+    /**
+     * Finds the first ingredient of a list with the given item id.
+     */
+    private static int firstIndexOf(Couple<Objet, Integer>[] ingredients, int id) {
+        int i = 0;
+        while (ingredients[i].getKey().getId() != id)
+            i++;
+        return i;
+    }
+
+    /**
+     * Sums the quantity of an item among the ingredients of a recipe.
+     */
+    private static long ingredientTotal(Recipe recipe, int id) {
+        long total = 0;
+        for (Couple<Objet, Integer> ingredient : recipe.getIngredients()) {
+            if (ingredient.getKey().getId() == id)
+                total += ingredient.getValue();
+        }
+        return total;
+    }
+
+    /**
+     * Reserves space for an item: other items cannot use it, even when this
+     * item is missing. Replaces the previous reservation of this item.
+     *
+     * @param item     The item.
+     * @param quantity The space reserved, 0 to remove the reservation.
+     */
+    public void setReservation(Objet item, long quantity) {
+        if (quantity < 0) throw  new RuntimeException("Illegal quantity");
+        int id = item.getId();
+        unusedReserved -= unused(id, counts[id]);
+        reserved[id] = quantity;
+        unusedReserved += unused(id, counts[id]);
+    }
+
+    /**
+     * Gets the space reserved for an item.
+     *
+     * @param item The item.
+     * @return The space reserved, filled or not.
+     */
+    public long getReservation(Objet item) {
+        return reserved[item.getId()];
+    }
+
+    /**
+     * Removes every reservation.
+     */
+    public void clearReservations() {
+        Arrays.fill(reserved, 0);
+        unusedReserved = 0;
+    }
+
+    /**
+     * Gets the reserved space of an item that it does not fill.
+     */
+    private long unused(int id, long count) {
+        return Math.max(0, reserved[id] - count);
+    }
+
+    /**
+     * Removes the ingredients of a recipe, already checked to be available.
+     */
+    private void consume(Recipe recipe, int times) {
+        if (times == 0)
+            return;
+        for (Couple<Objet, Integer> couple : recipe.getIngredients()) {
+            take(couple.getKey().getId(), (long) couple.getValue() * times);
+        }
+        spaceFreed();
+    }
+
+    /**
+     * Moves items, already checked to be available and to fit, to another
+     * inventory.
+     */
+    private void transfer(Inventory target, int id, int quantity) {
+        if (quantity == 0)
+            return;
+        take(id, quantity);
+        target.addItem(DB.item[id], quantity);
+        spaceFreed();
+    }
+
+    /**
+     * Lowers the quantity of an item, without any check or callback.
+     */
+    private void take(int id, long quantity) {
+        counts[id] -= quantity;
+        currentCount -= quantity;
+        unusedReserved += unused(id, counts[id]) - unused(id, counts[id] + quantity);
+        version++;
+        if (counts[id] == 0)
+            occupied[id >>> 6] &= ~(1L << id);
+        if (quantityListener != null && quantity != 0)
+            quantityListener.quantityChanged(id, counts[id] + quantity, counts[id]);
     }
 
     /**
@@ -71,16 +407,46 @@ public class Inventory implements Savable {
      * @return A list of unique items in the inventory.
      */
     public List<Objet> getItems() {
-        return new LinkedList<>(items.keySet());
+        List<Objet> result = new LinkedList<>();
+        for (int id = nextItemId(0); id >= 0; id = nextItemId(id + 1)) {
+            result.add(DB.item[id]);
+        }
+        return result;
     }
 
     /**
      * Retrieves the full content of the inventory with quantities.
+     * The map is a snapshot ordered by item id; changing it does not change the
+     * inventory.
      *
      * @return A map containing all items and their quantities.
      */
     public Map<Objet, Integer> getInventoryContent() {
-        return items;
+        Map<Objet, Integer> content = new LinkedHashMap<>();
+        for (int id = nextItemId(0); id >= 0; id = nextItemId(id + 1)) {
+            content.put(DB.item[id], (int) counts[id]);
+        }
+        return content;
+    }
+
+    /**
+     * Finds the first non-empty slot at or after the given item id.
+     *
+     * @param from The item id to start from.
+     * @return The id of the next item held, or -1 if there is none.
+     */
+    public int nextItemId(int from) {
+        int word = from >>> 6;
+        if (word >= occupied.length)
+            return -1;
+        long bits = occupied[word] & (-1L << from);
+        while (true) {
+            if (bits != 0)
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            if (++word == occupied.length)
+                return -1;
+            bits = occupied[word];
+        }
     }
 
     /**
@@ -90,7 +456,7 @@ public class Inventory implements Savable {
      * @return The quantity of the item.
      */
     public int getQuantityOf(Objet item) {
-        return items.getOrDefault(item, 0);
+        return (int) counts[item.getId()];
     }
 
     /**
@@ -118,6 +484,50 @@ public class Inventory implements Savable {
      */
     public void increaseCapacity(int additionalCapacity) {
         capacity += additionalCapacity;
+        if (additionalCapacity > 0)
+            spaceFreed();
+    }
+
+    /**
+     * Registers a one-shot callback run the next time an item is added.
+     * Replaces the previous one; null removes it.
+     *
+     * @param callback The callback to run.
+     */
+    public void notifyOnItemAdded(Runnable callback) {
+        onItemAdded = callback;
+    }
+
+    /**
+     * Registers a one-shot callback run the next time an item is removed or the
+     * capacity is increased. Replaces the previous one; null removes it.
+     *
+     * @param callback The callback to run.
+     */
+    public void notifyOnSpaceFreed(Runnable callback) {
+        onSpaceFreed = callback;
+    }
+
+    /**
+     * Registers a listener told about every change of the quantity of an item,
+     * with the quantities before and after. Unlike the one-shot callbacks it
+     * stays registered. Replaces the previous one; null removes it.
+     *
+     * @param listener The listener.
+     */
+    public void setQuantityListener(QuantityListener listener) {
+        quantityListener = listener;
+    }
+
+    /**
+     * Runs and clears the space freed callback, if any.
+     */
+    private void spaceFreed() {
+        if (onSpaceFreed != null) {
+            Runnable callback = onSpaceFreed;
+            onSpaceFreed = null;
+            callback.run();
+        }
     }
 
     /**
@@ -128,7 +538,9 @@ public class Inventory implements Savable {
     @Override
     public String save() {
         StringBuilder savedState = new StringBuilder();
-        items.forEach((item, quantity) -> savedState.append(String.format("%s:%d/", DB.objetToInt.get(item).toString(),quantity)));
+        for (int id = nextItemId(0); id >= 0; id = nextItemId(id + 1)) {
+            savedState.append(id).append(':').append(counts[id]).append('/');
+        }
         return savedState.toString();
     }
 
@@ -148,7 +560,7 @@ public class Inventory implements Savable {
                     int itemId = Integer.parseInt(association[0]);
                     int quantity = Integer.parseInt(association[1]);
 
-                    Objet item = DB.intToObjet.get(itemId);
+                    Objet item = DB.itemOf(itemId);
                     if (item == null) {
                         throw new NotFound("Corrupted item ID in inventory: " + itemId);
                     }
@@ -172,7 +584,9 @@ public class Inventory implements Savable {
     public String toString() {
         StringBuilder result = new StringBuilder();
         result.append("Inventory:\n------------\n");
-        items.forEach((item, quantity) -> result.append(String.format("%s:%d\n", item.toString(),quantity)));
+        for (int id = nextItemId(0); id >= 0; id = nextItemId(id + 1)) {
+            result.append(String.format("%s:%d\n", DB.item[id].toString(), counts[id]));
+        }
         return result.toString();
     }
 }
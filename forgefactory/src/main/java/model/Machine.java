@@ -1,12 +1,16 @@
 package main.java.model;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map.Entry;
+import java.util.Random;
+import java.util.SplittableRandom;
+import main.java.controller.TaskHandle;
+import main.java.controller.Timeline;
 import main.java.model.Enum.BonusMachine;
 import main.java.model.Exception.InvalidSaveFormat;
 import main.java.model.Interface.Savable;
 import main.java.model.storage.Value;
-import main.java.model.util.Task;
 
 /**
  * La classe abstraite Machine représente une base commune pour toutes les
@@ -19,39 +23,25 @@ public abstract class Machine implements Savable {
     /**
      * La tâche actuelle assignée à la machine.
      */
-    protected Task task;
+    protected TaskHandle task;
     /**
-     * Liste des bonus attribués à la machine.
-     * Les clés sont des types de bonus (BonusMachine) et les valeurs sont les
-     * quantités associées.
+     * L'identifiant de la machine : sa ligne dans le MachineStore, où sont
+     * rangés sa durabilité, sa vitesse, ses bonus, etc.
      */
-    private final HashMap<BonusMachine, Integer> countBonus;
+    protected final int id;
     /**
      * L'inventaire associé à la machine.
      * Permet de stocker des objets ou ressources.
      */
     private final Inventory inventory;
-    /**
-     * La durabilité maximale de la machine (points de vie maximum).
-     */
-    private int maxDurability;
-    /**
-     * La durabilité actuelle de la machine.
-     */
-    private int durability;
-    /**
-     * La vitesse supplémentaire attribuée à la machine (sous forme de pourcentage).
-     */
-    private double extraSpeed;
-    /**
-     * Indique si la machine est en cours de première configuration.
-     */
-    private boolean firstConfiguration;
-    // Indique si la machine est fragile
-    private boolean fragile;
-    // Indique si la machine est cassé (ne peut pas avoir ce status si elle n'est
-    // pas fragile)
-    private boolean breaked;
+    // La graine des tirages des machines, fixée par la carte
+    private static volatile long randomSeed = new Random().nextLong();
+    // Les tirages aléatoires propres à la machine (casse), indépendants de
+    // l'ordre dans lequel les machines sont simulées et dérivés de la graine et
+    // de l'identifiant : une partie est reproductible
+    private final SplittableRandom random;
+    // Rappel unique exécuté à la prochaine réparation (durabilité ou casse)
+    private Runnable onRepair;
 
     /**
      * Constructeur de la classe Machine.
@@ -61,16 +51,26 @@ public abstract class Machine implements Savable {
      * @param bonus Les bonus attribués à la machine.
      */
     public Machine(HashMap<BonusMachine, Integer> bonus) {
-        this.durability = 200;
-        this.maxDurability = 200;
-        this.extraSpeed = 0;
-        this.countBonus = bonus;
-        this.firstConfiguration = true;
-        this.fragile = false;
-        this.breaked = false;
+        this.id = MachineStore.allocate();
+        this.random = new SplittableRandom(randomSeed ^ (id + 1) * 0x9E3779B97F4A7C15L);
+        MachineStore.durability[id] = 200;
+        MachineStore.maxDurability[id] = 200;
+        for (Entry<BonusMachine, Integer> entry : bonus.entrySet()) {
+            MachineStore.bonus[id * MachineStore.BONUS_TYPES + entry.getKey().ordinal()] = entry.getValue();
+        }
         this.inventory = new Inventory(Value.machineInventorySize);
     }
 
+    /**
+     * Fixe la graine des tirages des machines créées ensuite (appelé par la
+     * carte avec sa propre graine).
+     *
+     * @param seed La graine.
+     */
+    public static void setRandomSeed(long seed) {
+        randomSeed = seed;
+    }
+
     /**
      * Crée une liste de bonus contenant un seul type de bonus.
      *
@@ -87,12 +87,21 @@ public abstract class Machine implements Savable {
     /**
      * Assigne une tâche à la machine.
      *
-     * @param task La tâche à attribuer.
+     * @param task La poignée de la tâche périodique de la machine.
      */
-    public void setTask(Task task) {
+    public void setTask(TaskHandle task) {
         this.task = task;
     }
 
+    /**
+     * Retourne la tâche assignée à la machine.
+     *
+     * @return La poignée de la tâche périodique de la machine.
+     */
+    public TaskHandle getTask() {
+        return this.task;
+    }
+
     /**
      * Retourne l'inventaire associé à la machine.
      *
@@ -117,7 +126,7 @@ public abstract class Machine implements Savable {
      * @param add La quantité supplémentaire à ajouter à la durabilité maximale.
      */
     public void extraDurability(int add) {
-        this.maxDurability += add;
+        MachineStore.maxDurability[id] += add;
     }
 
     /**
@@ -126,7 +135,7 @@ public abstract class Machine implements Savable {
      * @param add Le pourcentage de vitesse supplémentaire à appliquer.
      */
     public void extraSpeed(double add) {
-        this.extraSpeed += add;
+        MachineStore.extraSpeed[id] += add;
     }
 
     /**
@@ -137,11 +146,11 @@ public abstract class Machine implements Savable {
      * @return true si la machine est polyvalente, sinon false.
      */
     public boolean getPolyvalence() {
-        if (this.firstConfiguration) {
-            this.firstConfiguration = false;
+        if (!MachineStore.hasFlag(id, MachineStore.CONFIGURED)) {
+            MachineStore.setFlag(id, MachineStore.CONFIGURED, true);
             return true;
         } else {
-            return countBonus.getOrDefault(BonusMachine.POLYVALENTE, 0) == 1;
+            return getNumberOf(BonusMachine.POLYVALENTE) == 1;
         }
     }
 
@@ -149,46 +158,74 @@ public abstract class Machine implements Savable {
      * Configure la machine pour qu'elle devienne polyvalente.
      */
     public void setPolytvalente() {
-        this.countBonus.put(BonusMachine.POLYVALENTE, 1);
+        MachineStore.bonus[id * MachineStore.BONUS_TYPES + BonusMachine.POLYVALENTE.ordinal()] = 1;
     }
 
     public int getDurability() {
-        return this.durability;
+        return MachineStore.durability[id];
     }
 
     // --- Gestion de la durabilité ---
     public void setDurability(int durability) {
-        this.durability = durability;
+        boolean repaired = MachineStore.durability[id] <= 0 && durability > 0;
+        MachineStore.durability[id] = durability;
+        if (repaired)
+            repaired();
     }
 
     public int getMaxDurability() {
-        return this.maxDurability;
+        return MachineStore.maxDurability[id];
     }
 
     public void setMaxDurability(int maxDurability) {
-        this.maxDurability = maxDurability;
+        MachineStore.maxDurability[id] = maxDurability;
     }
 
     public double getExtraSpeed() {
-        return this.extraSpeed;
+        return MachineStore.extraSpeed[id];
     }
 
     // --- Gestion de la fragilité ---
 
     public void setFragile() {
-        this.fragile = true;
+        MachineStore.setFlag(id, MachineStore.FRAGILE, true);
     }
 
     public boolean getFragile() {
-        return this.fragile;
+        return MachineStore.hasFlag(id, MachineStore.FRAGILE);
     }
 
     public void setBreaked(boolean breaked) {
-        this.breaked = breaked;
+        boolean repaired = getBreaked() && !breaked;
+        MachineStore.setFlag(id, MachineStore.BREAKED, breaked);
+        if (repaired)
+            repaired();
+    }
+
+    /**
+     * Enregistre un rappel unique exécuté à la prochaine réparation de la
+     * machine (durabilité remise au-dessus de 0 ou machine cassée réparée).
+     * Remplace le précédent ; null le supprime.
+     *
+     * @param callback Le rappel à exécuter.
+     */
+    public void notifyOnRepair(Runnable callback) {
+        this.onRepair = callback;
+    }
+
+    /**
+     * Exécute et oublie le rappel de réparation, s'il existe.
+     */
+    private void repaired() {
+        if (this.onRepair != null) {
+            Runnable callback = this.onRepair;
+            this.onRepair = null;
+            callback.run();
+        }
     }
 
     public boolean getBreaked() {
-        return this.breaked;
+        return MachineStore.hasFlag(id, MachineStore.BREAKED);
     }
 
     // --- Gestion de l'inventaire ---
@@ -202,15 +239,140 @@ public abstract class Machine implements Savable {
 
     // --- Gestion des bonus ---
     public int getNumberOf(BonusMachine bonusMachine) {
-        return this.countBonus.getOrDefault(bonusMachine, 0);
+        return MachineStore.bonus[id * MachineStore.BONUS_TYPES + bonusMachine.ordinal()];
     }
 
     public void addcountBonus(BonusMachine bonusMachine) {
-        this.countBonus.put(bonusMachine, 1 + this.countBonus.getOrDefault(bonusMachine, 0));
+        MachineStore.bonus[id * MachineStore.BONUS_TYPES + bonusMachine.ordinal()]++;
     }
 
+    /**
+     * Retourne une copie des bonus de la machine (seulement ceux qu'elle a).
+     *
+     * @return Les bonus et leur nombre.
+     */
     public HashMap<BonusMachine, Integer> getCountBonus() {
-        return this.countBonus;
+        HashMap<BonusMachine, Integer> countBonus = new HashMap<>();
+        for (BonusMachine bonusMachine : BonusMachine.values()) {
+            int count = getNumberOf(bonusMachine);
+            if (count != 0)
+                countBonus.put(bonusMachine, count);
+        }
+        return countBonus;
+    }
+
+    /**
+     * Libère la ligne de la machine dans le MachineStore. La machine ne doit
+     * plus être utilisée ensuite.
+     */
+    public void release() {
+        MachineStore.release(id);
+    }
+
+    // --- Gestion de la production ---
+
+    /**
+     * Retourne la durée d'un cycle de production de la machine.
+     *
+     * @return La durée d'un cycle, en secondes.
+     */
+    public abstract int getCycleTime();
+
+    /**
+     * Retourne le nombre maximal de cycles que la machine peut enchaîner avec son
+     * inventaire actuel (ingrédients disponibles et place libre), sans tenir
+     * compte de la durabilité.
+     *
+     * @return Le nombre de cycles possibles.
+     */
+    protected abstract long getCycleLimit();
+
+    /**
+     * Applique d'un coup le résultat de plusieurs cycles de production sur
+     * l'inventaire de la machine.
+     *
+     * @param cycles Le nombre de cycles à appliquer (toujours possible).
+     */
+    protected abstract void produce(int cycles);
+
+    /**
+     * Retourne la durée réelle d'un cycle, telle que la timeline l'exécute (au
+     * moins un tick).
+     *
+     * @return La durée d'un cycle en secondes.
+     */
+    public double getEffectiveCycleTime() {
+        return getCycleTicks() * Timeline.getIntervale() / 1000.0;
+    }
+
+    /**
+     * @return la durée d'un cycle en ticks (au moins un tick)
+     */
+    private double getCycleTicks() {
+        return Math.max(1, getCycleTime() * 1000.0 / Timeline.getIntervale());
+    }
+
+    /**
+     * Fait avancer la machine d'une durée donnée en un seul calcul, au lieu de
+     * simuler chaque tick (temps passé hors du jeu, saut dans le temps).
+     * Le nombre de cycles est limité par la durée, les ingrédients, la place
+     * dans l'inventaire, la durabilité et, pour une machine fragile, par le
+     * tirage du cycle où elle casse.
+     *
+     * @param elapsed La durée écoulée.
+     * @return Le nombre de cycles réellement effectués.
+     */
+    public int advance(Duration elapsed) {
+        // même période que la tâche périodique de la machine (au moins un tick)
+        double cycleTicks = getCycleTicks();
+        return advanceCycles((long) (elapsed.toMillis() / Timeline.getIntervale() / cycleTicks));
+    }
+
+    /**
+     * Fait plusieurs cycles d'un coup, avec les mêmes limites que
+     * {@link #advance(Duration)}.
+     *
+     * @param cycles Le nombre de cycles écoulés.
+     * @return Le nombre de cycles réellement effectués.
+     */
+    public int advanceCycles(long cycles) {
+        if (getFragile() && getBreaked())
+            return 0;
+        int done = (int) Math.max(0, Math.min(cycles, Math.min(getDurability(), getCycleLimit())));
+        // la machine ne casse que si elle arrive au cycle tiré en tournant
+        // vraiment (ingrédients, place et durabilité comprises)
+        if (getFragile() && done > 0) {
+            long intactCycles = cyclesBeforeBreak();
+            if (intactCycles < done) {
+                MachineStore.setFlag(id, MachineStore.BREAKED, true);
+                done = (int) intactCycles;
+            }
+        }
+        if (done > 0) {
+            produce(done);
+            MachineStore.durability[id] -= done;
+        }
+        return done;
+    }
+
+    /**
+     * Tire au sort la casse d'une machine fragile pour un cycle de production.
+     *
+     * @return true si la machine casse pendant ce cycle.
+     */
+    public boolean rollBreak() {
+        return this.random.nextDouble() <= Value.breakChance;
+    }
+
+    /**
+     * Tire le nombre de cycles qu'une machine fragile fera avant de casser
+     * (loi géométrique de paramètre {@link Value#breakChance}).
+     *
+     * @return Le nombre de cycles effectués sans casser.
+     */
+    private long cyclesBeforeBreak() {
+        double draw = 1 - this.random.nextDouble(); // dans ]0, 1]
+        return (long) Math.floor(Math.log(draw) / Math.log(1 - Value.breakChance));
     }
 
     /**
@@ -229,14 +391,13 @@ public abstract class Machine implements Savable {
     @Override
     public String save() {
         String bonusSave = "";
-        if (!countBonus.isEmpty()) {
-            for (Entry<BonusMachine, Integer> bonusMachine : countBonus.entrySet()) {
-                bonusSave += bonusMachine.getKey() + ":" + bonusMachine.getValue() + "/";
-            }
-        } else {
-            bonusSave = " ";
+        for (BonusMachine bonusMachine : BonusMachine.values()) {
+            if (getNumberOf(bonusMachine) != 0)
+                bonusSave += bonusMachine + ":" + getNumberOf(bonusMachine) + "/";
         }
-        return inventory.save() + "," + this.durability + "," + this.breaked + "," + bonusSave;
+        if (bonusSave.isEmpty())
+            bonusSave = " ";
+        return inventory.save() + "," + getDurability() + "," + getBreaked() + "," + bonusSave;
     }
 
     /**
@@ -250,9 +411,9 @@ public abstract class Machine implements Savable {
         try {
             String[] saveSplited = save.split(",");
             this.inventory.restore(saveSplited[1]); // Restaure l'inventaire.
-            this.durability = Integer.parseInt(saveSplited[2]); // Restaure la durabilité.
-            this.breaked = saveSplited[3].equals("true") ;
-            this.firstConfiguration = false; // Machine déjà configurée.
+            MachineStore.durability[id] = Integer.parseInt(saveSplited[2]); // Restaure la durabilité.
+            MachineStore.setFlag(id, MachineStore.BREAKED, saveSplited[3].equals("true"));
+            MachineStore.setFlag(id, MachineStore.CONFIGURED, true); // Machine déjà configurée.
 
             // Restaure les bonus s'ils existent.
             if (!saveSplited[4].equals(" ")) {
@@ -261,7 +422,7 @@ public abstract class Machine implements Savable {
                     if (!bonusString.equals("")) {
                         String[] paire = bonusString.split(":");
                         BonusMachine b = BonusMachine.valueOf(paire[0]);
-                        this.countBonus.put(b, Integer.valueOf(paire[1]));
+                        MachineStore.bonus[id * MachineStore.BONUS_TYPES + b.ordinal()] = Integer.parseInt(paire[1]);
                     }
                 }
             }
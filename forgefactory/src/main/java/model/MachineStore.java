@@ -0,0 +1,116 @@
+package main.java.model;
+
+import java.util.Arrays;
+import main.java.model.Enum.BonusMachine;
+
+/**
+ * La classe MachineStore range l'état de toutes les machines en colonnes :
+ * un tableau de types primitifs par propriété, indexé par l'identifiant de la
+ * machine. Les classes Machine, Factory et Harvester ne sont que des vues sur
+ * une ligne de ce stockage.
+ *
+ * Avec beaucoup de machines, l'état tient dans quelques tableaux contigus au
+ * lieu d'un objet et d'une HashMap de bonus par machine, et une boucle sur une
+ * colonne reste dans le cache. Les lignes libérées sont réutilisées.
+ *
+ * Les colonnes ne sont agrandies qu'à la création d'une machine, sous le verrou
+ * de la simulation ; pendant un tick, chaque machine n'écrit que dans sa ligne.
+ */
+public final class MachineStore {
+    static final int BONUS_TYPES = BonusMachine.values().length;
+    static final int NONE = -1; // aucune recette ou ressource
+
+    // bits de la colonne flags
+    static final byte FRAGILE = 1;
+    static final byte BREAKED = 2;
+    static final byte CONFIGURED = 4; // première configuration déjà faite
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // --- Colonnes ---
+    static int[] durability = new int[INITIAL_CAPACITY];
+    static int[] maxDurability = new int[INITIAL_CAPACITY];
+    static double[] extraSpeed = new double[INITIAL_CAPACITY];
+    static byte[] flags = new byte[INITIAL_CAPACITY];
+    static int[] program = new int[INITIAL_CAPACITY]; // recette d'une usine ou ressource d'un récolteur
+    static int[][] recipeLists = new int[INITIAL_CAPACITY][]; // recettes d'une usine multi-recettes, null sinon
+    static int[] bonus = new int[INITIAL_CAPACITY * BONUS_TYPES]; // BONUS_TYPES cases par machine
+
+    private static int capacity = INITIAL_CAPACITY; // nombre de lignes allouées
+    private static int used = 0; // nombre de lignes déjà distribuées
+    private static int[] freeIds = new int[16]; // lignes libérées, réutilisées en priorité
+    private static int freeCount = 0;
+
+    private MachineStore() {
+    }
+
+    /**
+     * Réserve une ligne pour une nouvelle machine et la remet à zéro.
+     *
+     * @return L'identifiant de la machine.
+     */
+    static synchronized int allocate() {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (used == capacity)
+                grow();
+            id = used++;
+        }
+        durability[id] = 0;
+        maxDurability[id] = 0;
+        extraSpeed[id] = 0;
+        flags[id] = 0;
+        program[id] = NONE;
+        recipeLists[id] = null;
+        Arrays.fill(bonus, id * BONUS_TYPES, (id + 1) * BONUS_TYPES, 0);
+        return id;
+    }
+
+    /**
+     * Libère la ligne d'une machine qui ne sera plus utilisée.
+     *
+     * @param id L'identifiant de la machine.
+     */
+    static synchronized void release(int id) {
+        if (freeCount == freeIds.length)
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        freeIds[freeCount++] = id;
+    }
+
+    /**
+     * Double la taille de toutes les colonnes.
+     */
+    private static void grow() {
+        capacity *= 2;
+        durability = Arrays.copyOf(durability, capacity);
+        maxDurability = Arrays.copyOf(maxDurability, capacity);
+        extraSpeed = Arrays.copyOf(extraSpeed, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        program = Arrays.copyOf(program, capacity);
+        recipeLists = Arrays.copyOf(recipeLists, capacity);
+        bonus = Arrays.copyOf(bonus, capacity * BONUS_TYPES);
+    }
+
+    // --- Accès aux bits ---
+
+    static boolean hasFlag(int id, byte flag) {
+        return (flags[id] & flag) != 0;
+    }
+
+    static void setFlag(int id, byte flag, boolean value) {
+        if (value) {
+            flags[id] |= flag;
+        } else {
+            flags[id] &= ~flag;
+        }
+    }
+
+    /**
+     * @return le nombre de machines utilisant une ligne du stockage
+     */
+    public static synchronized int size() {
+        return used - freeCount;
+    }
+}
@@ -1,11 +1,16 @@
 package main.java.model;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.function.Function;
 import main.java.controller.FactoryController;
 import main.java.controller.HarvesterController;
+import main.java.controller.MachineController;
 import main.java.controller.MarketController;
 import main.java.model.Exception.InvalidSaveFormat;
 import main.java.model.Interface.Clickable;
@@ -14,6 +19,7 @@ import main.java.model.storage.DB;
 import main.java.model.storage.Value;
 import main.java.model.util.PathFinder;
 import main.java.model.util.Position;
+import main.java.model.util.ProductionAnalyzer;
 import main.java.model.util.Save;
 import main.java.view.GUI;
 
@@ -21,14 +27,21 @@ import main.java.view.GUI;
  * La classe {@code Map} représente la carte du jeu, y compris les ressources, les interactions avec le joueur,
  * et les structures comme les points de spawn, les marchés, les usines et les récolteurs.
  * Elle gère la disposition de la zone de jeu et prend en charge la sauvegarde et la restauration de l'état.
+ *
+ * Les cases sont rangées dans un {@link World} découpé en chunks : chaque chunk est généré à la première
+ * lecture d'une de ses cases. Les cases d'un chunk qui touchent un chunk voisin restent libres et les
+ * ressources ne coupent jamais un chunk en deux, donc toute la carte reste accessible depuis le spawn.
  */
 public class Map implements Savable {
 
-    /** La matrice représentant les ressources et éléments sur la carte. */
-    private Map.ResourceList[][] representativeMap;
+    /** Les cases de la carte, par chunks générés à la demande. */
+    private World world;
 
-    /** Une map associant des positions à des éléments cliquables sur la carte. */
-    private HashMap<Position, Clickable> clickableMap;
+    /** Les machines placées sur la carte, dans l'ordre de placement. */
+    private final ArrayList<MachineController> machines = new ArrayList<>();
+
+    /** La position de chaque machine de {@link #machines}, au même indice. */
+    private final ArrayList<Position> machinePositions = new ArrayList<>();
 
     /** Le nombre de lignes de la carte. */
     private int rows;
@@ -36,17 +49,20 @@ public class Map implements Savable {
     /** Le nombre de colonnes de la carte. */
     private int cols;
 
-    /** Un multiplicateur pour ajuster la quantité de ressources placées sur la carte. */
-    private int resourcesMultiplier;
+    /** La proportion de cases occupées par une ressource dans chaque chunk. */
+    private double resourceDensity;
 
     /** Le nombre fixe de types de ressources disponibles sur la carte. */
-    private final int resourcesCount = 5;
+    private static final int resourcesCount = 5;
+
+    /** Le nombre de chunks générés d'avance de chaque côté du spawn. */
+    private static final int PREGENERATED_CHUNKS = 8;
 
     /** Le joueur associé à cette carte. */
     private final Player player;
 
-    /** Un générateur de nombres aléatoires pour la randomisation des positions et événements. */
-    private final Random rand = new Random();
+    /** La graine de la génération : une même graine donne toujours la même carte. */
+    private long seed;
 
     /** Indicateur indiquant si une machine est en cours de placement sur la carte. */
     private boolean isPlacing = false;
@@ -59,6 +75,7 @@ public class Map implements Savable {
 
     /** La position du marché sur la carte. */
     private Position marketPosition;
+    private final ProductionAnalyzer production = new ProductionAnalyzer(); // Débits des machines placées
 
     /** Le cadre de l'interface utilisateur associé à cette carte. */
     private final GUI frame;
@@ -73,17 +90,59 @@ public class Map implements Savable {
      * @param cols   Le nombre de colonnes de la carte.
      */
     public Map(GUI frame, Player player, int rows, int cols) {
+        this(frame, player, rows, cols, defaultDensity(rows, cols));
+    }
+
+    /**
+     * Constructeur de la classe {@code Map} avec une densité de ressources choisie. La génération est
+     * linéaire, donc même une carte dense se génère instantanément.
+     *
+     * @param frame           Le cadre de l'interface utilisateur associé à cette carte.
+     * @param player          Le joueur associé à cette carte.
+     * @param rows            Le nombre de lignes de la carte.
+     * @param cols            Le nombre de colonnes de la carte.
+     * @param resourceDensity La proportion de cases occupées par une ressource (au plus environ 0.23 : les
+     *                        cases qui relient les ressources restent libres).
+     */
+    public Map(GUI frame, Player player, int rows, int cols, double resourceDensity) {
+        this(frame, player, rows, cols, resourceDensity, new Random().nextLong());
+    }
+
+    /**
+     * Constructeur de la classe {@code Map} avec une densité de ressources et une graine choisies. Chaque
+     * chunk tire ses nombres d'un générateur dérivé de la graine et de sa position, donc la carte est la
+     * même d'une partie à l'autre, quel que soit l'ordre (ou le thread) dans lequel les chunks sont générés.
+     * Les chunks autour du spawn sont générés d'avance, en parallèle.
+     *
+     * @param frame           Le cadre de l'interface utilisateur associé à cette carte.
+     * @param player          Le joueur associé à cette carte.
+     * @param rows            Le nombre de lignes de la carte.
+     * @param cols            Le nombre de colonnes de la carte.
+     * @param resourceDensity La proportion de cases occupées par une ressource.
+     * @param seed            La graine de la génération.
+     */
+    public Map(GUI frame, Player player, int rows, int cols, double resourceDensity, long seed) {
         this.frame = frame;
         this.rows = rows;
         this.cols = cols;
         this.player = player;
-
-        representativeMap = new Map.ResourceList[rows][cols];
-        resourcesMultiplier = Math.max(2, ((int) Math.floor(Math.sqrt(rows * cols)) / 3)); // pour generation instanttané ne pas dépasser 79
-        clickableMap = new HashMap<>();
-
+        this.resourceDensity = resourceDensity;
+        this.seed = seed;
+        Machine.setRandomSeed(seed);
         PathFinder.initialize(this);
-        selectBuilding();
+        placeSpawnAndMarket();
+        world = new World(rows, cols, this::generateChunk);
+        world.setClickable(marketPosition.getRow(), marketPosition.getCol(), new MarketController(player));
+        pregenerate();
+    }
+
+    /**
+     * Génère d'avance, en parallèle, les chunks autour du spawn.
+     */
+    private void pregenerate() {
+        int around = PREGENERATED_CHUNKS * World.CHUNK_SIZE;
+        world.generate(spawnPosition.getRow() - around, spawnPosition.getCol() - around, 2 * around + 1,
+                2 * around + 1);
     }
 
     /**
@@ -97,12 +156,20 @@ public class Map implements Savable {
         this.frame = frame;
         this.player = player;
         Save.restore(this);
-        rows = representativeMap.length;
-        if (rows != 0)
-            cols = representativeMap[0].length;
+        rows = world.getRows();
+        cols = world.getCols();
         PathFinder.initialize(this);
     }
 
+    /**
+     * Récupère la graine de la génération de la carte.
+     *
+     * @return La graine.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
     /**
      * Récupère le joueur associé à cette carte.
      *
@@ -113,15 +180,23 @@ public class Map implements Savable {
     }
 
     /**
-     * Place les bâtiments et les ressources sur la carte à des positions valides et aléatoires.
-     * 
-     * @return Une liste des positions où les ressources ont été placées.
+     * Calcule la densité de ressources par défaut : chaque type de ressource est placé un nombre de fois qui grandit
+     * avec la racine de la surface.
+     */
+    private static double defaultDensity(int rows, int cols) {
+        int resourcesMultiplier = Math.max(2, ((int) Math.floor(Math.sqrt((double) rows * cols)) / 3));
+        return (double) resourcesCount * resourcesMultiplier / ((double) rows * cols);
+    }
+
+    /**
+     * Choisit la position du spawn, n'importe où, et celle du marché, sur un bord de la carte.
+     * Les cases sont écrites par la génération de leur chunk.
      */
-    private LinkedList<Position> placeBuilding() {
-        LinkedList<Position> placedPosition = new LinkedList<>();
+    private void placeSpawnAndMarket() {
+        SplittableRandom rand = new SplittableRandom(seed);
+
         // Place le point de spawn
         spawnPosition = new Position(rand.nextInt(rows), rand.nextInt(cols));
-        representativeMap[spawnPosition.getRow()][spawnPosition.getCol()] = Map.ResourceList.SPAWN;
 
         // Place le marché
         do {
@@ -136,61 +211,151 @@ public class Map implements Savable {
             }
         } while (marketPosition.getCol() == spawnPosition.getCol() && marketPosition.getRow() == spawnPosition.getRow());
 
-        representativeMap[marketPosition.getRow()][marketPosition.getCol()] = Map.ResourceList.MARKET;
-        clickableMap.put(new Position(marketPosition.getRow(), marketPosition.getCol()), new MarketController(player));
-
-        // Place les ressources
-        for (int i = 0; i < resourcesCount * resourcesMultiplier; i++) {
-            boolean placed = false;
-            while (!placed) {
-                int col = rand.nextInt(cols);
-                int row = rand.nextInt(rows);
-                if (representativeMap[row][col] == null) {
-                    if (!reachable(row, col)) {
-                        continue;
-                    } else {
-                        representativeMap[row][col] = Map.ResourceList.NULL;
-                        if (otherAccessible(placedPosition)) {
-                            placed = true;
-                            placedPosition.add(new Position(row, col));
-                        } else {
-                            representativeMap[row][col] = null;
-                        }
-                    }
-                }
+    }
+
+    /**
+     * Génère un chunk : place le spawn et le marché s'ils y sont, puis des ressources qui laissent toutes les
+     * cases libres du chunk reliées entre elles et chaque ressource accessible. Les cases au bord d'un chunk
+     * voisin restent libres pour relier les chunks. Le reste du chunk est rempli d'herbe (NULL).
+     *
+     * Un arbre couvrant aléatoire des cases libres est construit, puis les ressources sont posées sur ses
+     * feuilles : retirer des feuilles laisse le reste de l'arbre relié. Le parent d'une ressource reste libre
+     * pour qu'on puisse l'atteindre. Chaque case est traitée un nombre constant de fois, donc le coût est
+     * linéaire quelle que soit la densité.
+     *
+     * Le chunk ne dépend que de la graine et de sa position, et la méthode ne modifie que lui : plusieurs
+     * chunks peuvent être générés en même temps.
+     *
+     * @param chunk Le chunk à remplir, vide.
+     */
+    private void generateChunk(World.Chunk chunk) {
+        SplittableRandom rand = new SplittableRandom(seed ^ chunk.getFirstRow() * 0x9E3779B97F4A7C15L
+                ^ chunk.getFirstCol() * 0xC2B2AE3D27D4EB4FL);
+        int height = chunk.getRows();
+        int width = chunk.getCols();
+        int firstRow = chunk.getFirstRow();
+        int firstCol = chunk.getFirstCol();
+        int size = World.CHUNK_SIZE * World.CHUNK_SIZE;
+        boolean[] pinned = new boolean[size]; // cases qui doivent rester libres
+
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                pinned[row * World.CHUNK_SIZE + col] = (row == 0 && firstRow > 0) || (col == 0 && firstCol > 0)
+                        || (row == height - 1 && firstRow + height < rows)
+                        || (col == width - 1 && firstCol + width < cols);
+            }
+        }
+        int root = 0;
+        if (contains(chunk, spawnPosition)) {
+            chunk.set(spawnPosition.getRow() - firstRow, spawnPosition.getCol() - firstCol, ResourceList.SPAWN);
+            root = (spawnPosition.getRow() - firstRow) * World.CHUNK_SIZE + spawnPosition.getCol() - firstCol;
+            pinned[root] = true;
+        }
+        int market = -1;
+        if (contains(chunk, marketPosition)) {
+            chunk.set(marketPosition.getRow() - firstRow, marketPosition.getCol() - firstCol, ResourceList.MARKET);
+            market = (marketPosition.getRow() - firstRow) * World.CHUNK_SIZE + marketPosition.getCol() - firstCol;
+            for (int direction = 0; direction < 4 && !isWalkable(chunk, root); direction++) {
+                int neighbour = neighbourOf(market, direction, height, width);
+                if (neighbour >= 0)
+                    root = neighbour;
             }
         }
-        return placedPosition;
-    }
-
-    /**
-     * Sélectionne et place les bâtiments et ressources sur la carte.
-     * Cette méthode place aléatoirement des ressources (autres que les machines) sur les positions
-     * valides de la carte, puis remplit la carte avec des cases représentant de l'herbe (NULL).
-     * Elle appelle la méthode {@link #placeBuilding()} pour initialiser les positions des bâtiments.
-     */
-    private void selectBuilding() {
-        LinkedList<Position> placedPosition = placeBuilding();
-        for (Map.ResourceList r : Map.ResourceList.values()) {
-            for (int i = 0; i < resourcesMultiplier; i++) {
-                if (r != Map.ResourceList.NULL && r != Map.ResourceList.MARKET && r != Map.ResourceList.SPAWN && r != Map.ResourceList.FACTORY
-                        && r != Map.ResourceList.HARVESTER) {
-                    int j = rand.nextInt(placedPosition.size());
-                    representativeMap[placedPosition.get(j).getRow()][placedPosition.get(j).getCol()] = r;
-                    Position pos = new Position(placedPosition.get(j).getRow(), placedPosition.get(j).getCol());
-                    clickableMap.put(pos, new Resources(player, r, pos));
-                    placedPosition.remove(j);
+        pinned[root] = true;
+
+        // Arbre couvrant : on agrandit l'arbre depuis une case de la frontière tirée au hasard
+        int[] parent = new int[size];
+        boolean[] inTree = new boolean[size];
+        boolean[] hasChild = new boolean[size];
+        int[] frontier = new int[size];
+        int frontierSize = 0;
+        inTree[root] = true;
+        parent[root] = -1;
+        frontier[frontierSize++] = root;
+        while (frontierSize > 0) {
+            int index = rand.nextInt(frontierSize);
+            int cell = frontier[index];
+            int next = -1;
+            int first = rand.nextInt(4);
+            for (int k = 0; k < 4 && next < 0; k++) {
+                int neighbour = neighbourOf(cell, (first + k) & 3, height, width);
+                if (neighbour < 0 || inTree[neighbour])
+                    continue;
+                inTree[neighbour] = true;
+                if (!isWalkable(chunk, neighbour)) {
+                    pinned[cell] = true; // le marché reste accessible par cette case
+                } else {
+                    next = neighbour;
                 }
             }
+            if (next < 0) {
+                frontier[index] = frontier[--frontierSize]; // plus de voisin à ajouter
+            } else {
+                parent[next] = cell;
+                hasChild[cell] = true;
+                frontier[frontierSize++] = next;
+            }
         }
-    
-        // Remplissage de la carte avec la valeur NULL pour les cases vides (herbe)
-        for (ResourceList[] is : representativeMap) {
-            for (int i = 0; i < is.length; i++) {
-                if (is[i] == null)
-                    is[i] = ResourceList.NULL;
+
+        // Les feuilles qui peuvent recevoir une ressource
+        int[] leaves = new int[size];
+        int leafCount = 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int cell = row * World.CHUNK_SIZE + col;
+                if (inTree[cell] && !hasChild[cell] && !pinned[cell] && isWalkable(chunk, cell))
+                    leaves[leafCount++] = cell;
             }
         }
+
+        // Place les ressources, chaque type à tour de rôle
+        int count = (int) Math.round(resourceDensity * height * width);
+        int type = rand.nextInt(resourcesCount);
+        for (int placed = 0; placed < count && leafCount > 0; placed++) {
+            int index = rand.nextInt(leafCount);
+            int cell = leaves[index];
+            leaves[index] = leaves[--leafCount];
+            if (pinned[cell])
+                continue; // devenue parent d'une ressource
+            chunk.set(cell >> World.CHUNK_SHIFT, cell & (World.CHUNK_SIZE - 1), ResourceList.values()[type]);
+            pinned[parent[cell]] = true;
+            type = (type + 1) % resourcesCount;
+        }
+
+        // Remplissage du chunk avec la valeur NULL pour les cases vides (herbe)
+        for (int row = 0; row < World.CHUNK_SIZE; row++) {
+            for (int col = 0; col < World.CHUNK_SIZE; col++) {
+                if (chunk.get(row, col) == null)
+                    chunk.set(row, col, ResourceList.NULL);
+            }
+        }
+    }
+
+    /**
+     * Retourne la case voisine d'une case d'un chunk dans une direction (0 à 3), ou -1 hors du chunk.
+     */
+    private static int neighbourOf(int cell, int direction, int height, int width) {
+        int row = (cell >> World.CHUNK_SHIFT) + (direction == 0 ? 1 : direction == 1 ? -1 : 0);
+        int col = (cell & (World.CHUNK_SIZE - 1)) + (direction == 2 ? 1 : direction == 3 ? -1 : 0);
+        if (row < 0 || col < 0 || row >= height || col >= width)
+            return -1;
+        return row * World.CHUNK_SIZE + col;
+    }
+
+    /**
+     * @return {@code true} si une case d'un chunk (indice ligne * 32 + colonne) est praticable
+     */
+    private static boolean isWalkable(World.Chunk chunk, int cell) {
+        return chunk.isWalkable(cell >> World.CHUNK_SHIFT, cell & (World.CHUNK_SIZE - 1));
+    }
+
+    /**
+     * Vérifie si une position de la carte est dans un chunk.
+     */
+    private static boolean contains(World.Chunk chunk, Position position) {
+        int row = position.getRow() - chunk.getFirstRow();
+        int col = position.getCol() - chunk.getFirstCol();
+        return row >= 0 && col >= 0 && row < chunk.getRows() && col < chunk.getCols();
     }
 
     /**
@@ -202,9 +367,9 @@ public class Map implements Savable {
      * @param col La colonne de la case cliquée.
      */
     public void action(int row, int col) {
-        Clickable c = clickableMap.get(new Position(row, col));
+        Clickable c = getClickable(row, col);
         // Si aucun élément cliquable n'est présent et que la case n'est pas le point de spawn
-        if (c == null && representativeMap[row][col] == ResourceList.NULL && (player.getRow() != row || player.getCol() != col)) {
+        if (c == null && world.get(row, col) == ResourceList.NULL && (player.getRow() != row || player.getCol() != col)) {
             placeOrMove(row, col);
         } else if (!(Math.abs(player.getRow() - row) <= 1 // Si on n'est pas dans un rayon de 1 autour du joueur
                 && Math.abs(player.getCol() - col) <= 1)) {
@@ -213,6 +378,32 @@ public class Map implements Savable {
         }
     }
 
+    /**
+     * Retourne l'élément cliquable d'une case. Celui d'une ressource est créé au premier clic, les clics
+     * suivants ne créent aucun objet.
+     *
+     * @param row La ligne de la case.
+     * @param col La colonne de la case.
+     * @return L'élément cliquable, ou {@code null} s'il n'y en a pas.
+     */
+    public Clickable getClickable(int row, int col) {
+        Clickable c = world.getClickable(row, col);
+        if (c == null && world.get(row, col).ordinal() < resourcesCount) {
+            c = new Resources(player, world.get(row, col), new Position(row, col));
+            world.setClickable(row, col, c);
+        }
+        return c;
+    }
+
+    /**
+     * Ajoute une machine sur la carte et dans la liste des machines.
+     */
+    private void addMachine(Position pos, MachineController mc) {
+        world.setClickable(pos.getRow(), pos.getCol(), mc);
+        machines.add(mc);
+        machinePositions.add(pos);
+    }
+
     /**
      * Effectue l'action appropriée en fonction de l'état de placement ou de mouvement du joueur.
      * Si une machine est en cours de placement, celle-ci est placée à la position spécifiée,
@@ -260,8 +451,8 @@ public class Map implements Savable {
         LinkedList<ResourceList> result = new LinkedList<>();
         for (int[] pos : possible) {
             if (isInBound(row + pos[0], col + pos[1])
-                    && representativeMap[row + pos[0]][col + pos[1]].ordinal() <= 4) { // Les 5 premières ressources sont considérées
-                result.add(representativeMap[row + pos[0]][col + pos[1]]);
+                    && world.get(row + pos[0], col + pos[1]).ordinal() <= 4) { // Les 5 premières ressources sont considérées
+                result.add(world.get(row + pos[0], col + pos[1]));
             }
         }
         return result;
@@ -287,56 +478,43 @@ public class Map implements Savable {
      */
     private void placeMachineAfterPosSelection(int row, int col) {
         Position pos = new Position(row, col);
-        Clickable mc;
+        MachineController mc;
         if (toPlace instanceof Factory ) {
-            representativeMap[row][col] = ResourceList.FACTORY;
+            world.set(row, col, ResourceList.FACTORY);
             mc = new FactoryController(
                     ((Factory)toPlace),
                     player.getInventory(), player.getWallet());
         } else {
-            representativeMap[row][col] = ResourceList.HARVESTER;
+            world.set(row, col, ResourceList.HARVESTER);
             LinkedList<ResourceList> resourceArround = getRessourceArround(row, col);
-            toPlace = new Harvester(resourceArround.get(0), toPlace.getCountBonus());
+            Machine template = toPlace;
+            toPlace = new Harvester(resourceArround.get(0), template.getCountBonus());
+            template.release(); // la machine achetée n'était qu'un modèle
             mc = new HarvesterController(
                     (Harvester) toPlace,
                     player.getInventory(), player.getWallet(),
                     resourceArround.toArray(ResourceList[]::new));
         }
-        clickableMap.put(pos, mc);
+        addMachine(pos, mc);
+        production.update(toPlace);
     
         Value.game.addMachine(row, col, toPlace);
         toPlace = null;
         isPlacing = false;
     
-        clickableMap.get(pos).action(this.frame);
+        mc.action(this.frame);
     }
 
     /**
-     * Vérifie si une ressource peut être atteinte depuis la position de spawn.
-     * Cette méthode utilise le Pathfinder pour vérifier l'accessibilité de la case spécifiée.
+     * Fait avancer toutes les machines de la carte d'une durée donnée, sans
+     * simuler chaque tick (saut dans le temps).
      *
-     * @param row La ligne de la ressource à vérifier.
-     * @param col La colonne de la ressource à vérifier.
-     * @return {@code true} si la ressource est accessible depuis le spawn, sinon {@code false}.
+     * @param elapsed La durée à sauter.
      */
-    private boolean reachable(int row, int col) {
-        return PathFinder.reachable(row, col);
-    }
-
-        /**
-     * Vérifie si toutes les positions placées sont accessibles depuis le point de spawn.
-     * La méthode retourne {@code false} dès qu'une position est inaccessible.
-     * Ensuite, elle vérifie si le marché est accessible.
-     *
-     * @param placedPosition La liste des positions placées à vérifier.
-     * @return {@code true} si toutes les positions sont accessibles, sinon {@code false}.
-     */
-    private boolean otherAccessible(LinkedList<Position> placedPosition) {
-        for (Position position : placedPosition) {
-            if (!reachable(position.getRow(), position.getCol()))
-                return false;
+    public void advance(Duration elapsed) {
+        for (MachineController machine : machines) {
+            machine.advance(elapsed);
         }
-        return reachable(marketPosition.getRow(), marketPosition.getCol());
     }
 
     // Section de vérification des coordonnées
@@ -345,14 +523,14 @@ public class Map implements Savable {
      * Vérifie si la case à la position spécifiée est disponible pour être utilisée.
      * La case est considérée comme disponible si elle est dans les limites de la carte
      * et si elle est vide (représentée par Map.ResourceList.NULL) ou s'il s'agit du point de spawn.
+     * La réponse vient de la carte de bits des cases praticables du monde, tenue à jour à chaque changement.
      *
      * @param row La ligne de la case à vérifier.
      * @param col La colonne de la case à vérifier.
      * @return {@code true} si la case est disponible, sinon {@code false}.
      */
     public boolean isAvailable(int row, int col) {
-        return isInBound(row, col)
-                && (representativeMap[row][col] == Map.ResourceList.NULL || representativeMap[row][col] == Map.ResourceList.SPAWN);
+        return world.isWalkable(row, col);
     }
 
     /**
@@ -396,21 +574,51 @@ public class Map implements Savable {
     }
 
     /**
-     * Retourne la carte des ressources représentée par un tableau de {@link Map.ResourceList}.
+     * Retourne le contenu d'une case de la carte, en générant son chunk si besoin.
      *
-     * @return La carte représentative des ressources.
+     * @param row La ligne de la case.
+     * @param col La colonne de la case.
+     * @return Le contenu de la case.
      */
-    public Map.ResourceList[][] getRepresentativeMap() {
-        return this.representativeMap;
+    public Map.ResourceList getCell(int row, int col) {
+        return world.get(row, col);
     }
 
     /**
-     * Retourne la liste des clickables
+     * Retourne les cases de la carte, rangées par chunks.
      *
-     * @return Lla list des clickables.
+     * @return Le monde de la carte.
      */
-    public HashMap<Position, Clickable> getClickableMap(){
-        return this.clickableMap;
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Retourne l'analyse des débits des machines placées, tenue à jour à chaque
+     * placement, changement de recette ou de ressource et achat de bonus.
+     *
+     * @return L'analyseur de production.
+     */
+    public ProductionAnalyzer getProduction() {
+        return production;
+    }
+
+    /**
+     * Récupère les machines placées sur la carte, sans parcourir les cases.
+     *
+     * @return Les machines, dans l'ordre de placement.
+     */
+    public List<MachineController> getMachines() {
+        return Collections.unmodifiableList(machines);
+    }
+
+    /**
+     * Récupère la position des machines placées sur la carte.
+     *
+     * @return Les positions, au même indice que les machines de {@link #getMachines()}.
+     */
+    public List<Position> getMachinePositions() {
+        return Collections.unmodifiableList(machinePositions);
     }
 
     /**
@@ -442,63 +650,116 @@ public class Map implements Savable {
 
     /**
      * Retourne la représentation en chaîne de caractères de la carte des ressources.
-     * Chaque case de la carte est représentée par son nom ou par "0" si elle est vide.
+     * Seuls les chunks déjà chargés sont écrits (la carte entière serait générée
+     * sinon), chacun précédé de sa première case ; chaque case est représentée par
+     * son nom ou par "0" si elle n'est pas fixée.
      *
      * @return La chaîne de caractères représentant la carte.
      */
     @Override
     public String toString() {
-        String r = "";
-        for (Map.ResourceList[] l : representativeMap) {
-            for (Map.ResourceList c : l) {
-                r += (c == null) ? "0 " : c + " ";
+        StringBuilder r = new StringBuilder();
+        r.append(rows).append('x').append(cols).append(", graine ").append(seed).append('\n');
+        for (World.Chunk chunk : world.getChunks()) {
+            r.append("chunk ").append(chunk.getFirstRow()).append(':').append(chunk.getFirstCol()).append('\n');
+            for (int row = 0; row < chunk.getRows(); row++) {
+                for (int col = 0; col < chunk.getCols(); col++) {
+                    Map.ResourceList c = chunk.get(row, col);
+                    r.append(c == null ? "0" : c).append(' ');
+                }
+                r.append('\n');
             }
-            r += "\n";
         }
-        return r;
+        return r.toString();
     }
 
     /* Section de sauvegarde */
 
     /**
      * Sauvegarde l'état actuel de la carte sous forme de chaîne de caractères.
-     * La carte est convertie en une représentation sous forme de chaînes d'entiers séparées par des virgules,
-     * chaque ligne étant séparée par un "/".
+     * La carte est régénérée à partir de sa graine au chargement, donc seuls sont
+     * écrits les paramètres de la génération puis les chunks modifiés depuis leur
+     * génération (voir {@link World#getModifiedChunks()}), séparés par un "|".
+     * Un chunk est écrit sous la forme "ligne:colonne:cases", avec un caractère
+     * par case (l'ordinal en base 36, ou "." pour une case pas fixée).
      *
      * @return La chaîne représentant la carte à sauvegarder.
      */
     @Override
     public String save() {
-        String r = "";
-        for (int j = 0; j < representativeMap.length; j++) {
-            ResourceList[] l = representativeMap[j];
-            for (int i = 0; i < l.length - 1; i++) {
-                r += DB.ListToInt.get(l[i]) + ",";
+        StringBuilder r = new StringBuilder();
+        r.append(seed).append(',').append(rows).append(',').append(cols).append(',').append(resourceDensity)
+                .append(',').append(spawnPosition.getRow()).append(':').append(spawnPosition.getCol())
+                .append(',').append(marketPosition.getRow()).append(':').append(marketPosition.getCol());
+        for (World.Chunk chunk : world.getModifiedChunks()) {
+            r.append('|').append(chunk.getFirstRow()).append(':').append(chunk.getFirstCol()).append(':');
+            for (int row = 0; row < World.CHUNK_SIZE; row++) {
+                for (int col = 0; col < World.CHUNK_SIZE; col++) {
+                    Map.ResourceList c = chunk.get(row, col);
+                    r.append(c == null ? '.' : Character.forDigit(c.ordinal(), Character.MAX_RADIX));
+                }
             }
-            r += DB.ListToInt.get(l[l.length - 1]);
-            if (j != representativeMap.length - 1)
-                ;
-            r += "/";
         }
-        return r;
+        return r.append('|').toString();
     }
 
     /* Section de restauration */
 
     /**
      * Restaure l'état de la carte à partir d'une chaîne représentant l'état sauvegardé.
-     * La chaîne est décodée pour reconstruire la carte, les ressources et les éléments interactifs.
+     * Le monde est reconstruit avec le générateur et la graine sauvegardée, puis les
+     * chunks sauvegardés remplacent les chunks générés. Les anciennes sauvegardes
+     * (la carte entière, sans graine) sont encore lues.
      *
      * @param s La chaîne représentant l'état sauvegardé de la carte.
      */
     @Override
     public void restore(String s) {
+        if (s.indexOf('|') < 0) {
+            restoreDense(s);
+            return;
+        }
+        String[] parts = s.split("\\|");
+        String[] header = parts[0].split(",");
+        this.seed = Long.parseLong(header[0]);
+        this.rows = Integer.parseInt(header[1]);
+        this.cols = Integer.parseInt(header[2]);
+        this.resourceDensity = Double.parseDouble(header[3]);
+        String[] spawn = header[4].split(":");
+        String[] market = header[5].split(":");
+        this.spawnPosition = new Position(Integer.parseInt(spawn[0]), Integer.parseInt(spawn[1]));
+        this.marketPosition = new Position(Integer.parseInt(market[0]), Integer.parseInt(market[1]));
+        Machine.setRandomSeed(seed);
+
+        world = new World(rows, cols, this::generateChunk);
+        ResourceList[] types = ResourceList.values();
+        for (int i = 1; i < parts.length; i++) {
+            String[] chunkSave = parts[i].split(":");
+            World.Chunk chunk = world.restoreChunk(Integer.parseInt(chunkSave[0]), Integer.parseInt(chunkSave[1]));
+            String cells = chunkSave[2];
+            for (int cell = 0; cell < cells.length(); cell++) {
+                int ordinal = Character.digit(cells.charAt(cell), Character.MAX_RADIX);
+                chunk.set(cell >> World.CHUNK_SHIFT, cell & (World.CHUNK_SIZE - 1), ordinal < 0 ? null : types[ordinal]);
+            }
+        }
+        world.setClickable(marketPosition.getRow(), marketPosition.getCol(), new MarketController(this.player));
+        pregenerate();
+    }
+
+    /**
+     * Restaure une carte sauvegardée entière, sans graine : chaque ligne est
+     * séparée par un "/" et chaque case par une virgule. Le monde n'a pas de
+     * générateur, toutes ses cases sont écrites.
+     *
+     * @param s La chaîne représentant la carte.
+     */
+    private void restoreDense(String s) {
         String[] demiTableau = s.split("/");
         String[][] tableau = new String[demiTableau.length][Save.countOccurrences(',', demiTableau[0])];
         for (int i = 0; i < demiTableau.length; i++) {
             tableau[i] = demiTableau[i].split(",");
         }
-        Map.ResourceList[][] rm = new Map.ResourceList[tableau.length][tableau[0].length];
+        World restored = new World(tableau.length, tableau[0].length, null);
 
         Function<String, Integer> stringToInt = (String e) -> {
             try {
@@ -508,69 +769,76 @@ public class Map implements Savable {
             }
         };
 
-        this.clickableMap = new HashMap<>();
+        // Les ressources retrouvent leur élément cliquable au premier clic
         for (int i = 0; i < tableau.length; i++) {
             for (int j = 0; j < tableau[i].length; j++) {
-                rm[i][j] = DB.intToList
-                        .get(stringToInt.apply(tableau[i][j]));
-                if (rm[i][j] == ResourceList.NULL) {
-
-                } else if (rm[i][j] == ResourceList.SPAWN) {
+                ResourceList cell = DB.resourceOf(stringToInt.apply(tableau[i][j]));
+                restored.set(i, j, cell);
+                if (cell == ResourceList.SPAWN) {
                     this.spawnPosition = new Position(i, j);
-                } else if (rm[i][j] != ResourceList.MARKET && rm[i][j] != ResourceList.FACTORY && rm[i][j] != ResourceList.HARVESTER) {
-                    Position pos = new Position(i, j);
-                    clickableMap.put(pos, new Resources(player, rm[i][j], pos));
-                } else if (rm[i][j] == ResourceList.MARKET)
-                    marketPosition =  new Position(i, j) ;
-                    clickableMap.put(marketPosition, new MarketController(this.player));
+                } else if (cell == ResourceList.MARKET) {
+                    marketPosition = new Position(i, j);
+                    restored.setClickable(i, j, new MarketController(this.player));
+                }
             }
         }
-        representativeMap = rm;
+        world = restored;
 
-        this.rows = representativeMap.length;
-        this.cols = representativeMap[0].length;
+        this.rows = world.getRows();
+        this.cols = world.getCols();
+        this.resourceDensity = defaultDensity(rows, cols);
     }
 
     /**
      * Restaure une usine à partir d'une chaîne représentant son état sauvegardé.
      * Cette méthode restaure la position, l'inventaire, les améliorations et les spécificités de l'usine.
      *
-     * @param s La chaîne représentant l'état sauvegardé de l'usine.
+     * La production faite pendant l'absence du joueur est rattrapée en un seul calcul.
+     *
+     * @param s       La chaîne représentant l'état sauvegardé de l'usine.
+     * @param elapsed Le temps écoulé depuis la sauvegarde.
      * @throws InvalidSaveFormat Si le format de sauvegarde est invalide.
      */
-    public void restoreFactory(String s) throws InvalidSaveFormat {
+    public void restoreFactory(String s, Duration elapsed) throws InvalidSaveFormat {
         String[] factoryString = s.split(",");
         String[] position = factoryString[0].split(":");
         Position pos = new Position(Integer.parseInt(position[0]), Integer.parseInt(position[1]));
         Factory factory = new Factory();
         factory.restore(s);
-        Clickable mc = new FactoryController(factory,
+        MachineController mc = new FactoryController(factory,
                 player.getInventory(), player.getWallet());
-        clickableMap.put(pos, mc);
-        representativeMap[pos.getRow()][pos.getCol()] = ResourceList.FACTORY;
+        mc.advance(elapsed); // après le contrôleur pour que les bonus soient appliqués
+        addMachine(pos, mc);
+        production.update(factory);
+        world.set(pos.getRow(), pos.getCol(), ResourceList.FACTORY);
     }
 
     /**
      * Restaure un récolteur à partir d'une chaîne représentant son état sauvegardé.
      * Cette méthode restaure la position, les ressources autour et les caractéristiques du récolteur.
      *
-     * @param s La chaîne représentant l'état sauvegardé du récolteur.
+     * La récolte faite pendant l'absence du joueur est rattrapée en un seul calcul.
+     *
+     * @param s       La chaîne représentant l'état sauvegardé du récolteur.
+     * @param elapsed Le temps écoulé depuis la sauvegarde.
      * @throws InvalidSaveFormat Si le format de sauvegarde est invalide.
      */
-    public void restoreHarvester(String s) throws InvalidSaveFormat {
+    public void restoreHarvester(String s, Duration elapsed) throws InvalidSaveFormat {
         String[] factoryString = s.split(",");
         String[] position = factoryString[0].split(":");
         Position pos = new Position(Integer.parseInt(position[0]), Integer.parseInt(position[1]));
-        ResourceList resource = DB.intToList.get(Integer.valueOf(factoryString[factoryString.length - 1]));
+        ResourceList resource = DB.resourceOf(Integer.valueOf(factoryString[factoryString.length - 1]));
         Harvester harvester = new Harvester(resource);
         harvester.restore(s);
 
         LinkedList<ResourceList> resourceArround = getRessourceArround(pos.getRow(), pos.getCol());
-        Clickable mc = new HarvesterController(harvester,
+        MachineController mc = new HarvesterController(harvester,
                 player.getInventory(), player.getWallet(),
                 resourceArround.toArray(ResourceList[]::new));
-        clickableMap.put(pos, mc);
-        representativeMap[pos.getRow()][pos.getCol()] = ResourceList.HARVESTER;
+        mc.advance(elapsed); // après le contrôleur pour que les bonus soient appliqués
+        addMachine(pos, mc);
+        production.update(harvester);
+        world.set(pos.getRow(), pos.getCol(), ResourceList.HARVESTER);
     }
 
     /**
@@ -1,5 +1,6 @@
 package main.java.model;
 
+import main.java.controller.SimulationClock;
 import main.java.model.Exception.NotEnoughMoney;
 import main.java.model.Interface.Savable;
 import main.java.model.storage.Value;
@@ -37,7 +38,7 @@ public class Money implements Savable {
      */
     public void setAmount(int newAmount) {
         amount = newAmount;
-        Value.game.updateMoneyLabel(this.amount); // Met à jour l'interface utilisateur
+        notifyView(); // Met à jour l'interface utilisateur
     }
 
     /**
@@ -59,7 +60,7 @@ public class Money implements Savable {
     public void addAmount(int amount) {
         assert amount >= 0 : "Le montant à ajouter doit être positif.";
         this.amount += amount;
-        Value.game.updateMoneyLabel(this.amount); // Met à jour l'affichage
+        notifyView(); // Met à jour l'affichage
     }
 
     /**
@@ -76,7 +77,15 @@ public class Money implements Savable {
             throw new NotEnoughMoney(); // Lève une exception si l'argent est insuffisant
         }
         this.amount -= amount;
-        Value.game.updateMoneyLabel(this.amount); // Met à jour l'affichage
+        notifyView(); // Met à jour l'affichage
+    }
+
+    /**
+     * Transmet le nouveau montant à la vue du jeu (regroupé par tick).
+     */
+    private void notifyView() {
+        int newAmount = this.amount;
+        SimulationClock.postView(this, () -> Value.game.updateMoneyLabel(newAmount));
     }
 
     /**
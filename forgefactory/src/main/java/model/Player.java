@@ -1,14 +1,10 @@
 package main.java.model;
 
-import main.java.controller.Timeline;
 import main.java.model.Exception.NotEnoughMoney;
 import main.java.model.Exception.NotFound;
 import main.java.model.Interface.Savable;
-import main.java.model.storage.DB;
-import main.java.model.util.Couple;
 import main.java.model.util.Objet;
 import main.java.model.util.Position;
-import main.java.model.util.Recipe;
 
 /**
  * La classe Player représente un joueur dans le jeu.
@@ -155,14 +151,6 @@ public class Player implements Savable {
      */
     @Override
     public String save() {
-        // On ajoute les ingrédients non fabriqués dans l'inventaire du joueur
-        for (Objet objet : Timeline.getResultCraftQueue()) {
-            Recipe recipe = DB.recipeMap.getByResult(objet);
-            for (Couple<Objet, Integer> ingredient : recipe.getIngredients()) {
-                // Taille infinie de l'inventaire du joueur donc pas de problème ici
-                this.inventory.addItem(ingredient.getKey(), ingredient.getValue());
-            }
-        }
         return wallet.save() + "\n" + inventory.save(); // Sauvegarde l'argent et l'inventaire
     }
 
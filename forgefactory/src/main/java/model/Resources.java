@@ -1,5 +1,6 @@
 package main.java.model;
 
+import main.java.controller.SimulationClock;
 import main.java.controller.Timeline;
 import main.java.model.Interface.Clickable;
 import main.java.model.Interface.Savable;
@@ -33,7 +34,7 @@ public class Resources implements Savable, Clickable {
      */
     public Resources(Player player, Map.ResourceList resourceList, Position pos) {
         this.player = player;
-        this.item = DB.listToObjet.get(resourceList); // Clone l'objet pour éviter des changements accidentels
+        this.item = DB.itemOf(resourceList); // Clone l'objet pour éviter des changements accidentels
         this.position = pos;
     }
 
@@ -59,12 +60,12 @@ public class Resources implements Savable, Clickable {
                 // Décrémente la jauge chaque seconde durant la récolte
                 for (int i = 0; i <= item.getDuration(); i++) {
                     int x = i; // Variable finale effective
-                    Timeline.add(new Task(x, () -> {
+                    Timeline.add(new Task(x, () -> SimulationClock.postView(this, () -> {
                         Value.game.setUnusable(false,
                                 Value.game.getCellSize()
                                         - (x + 1) * ((double) Value.game.getCellSize() / (item.getDuration())),
                                 this.position);
-                    }));
+                    })));
                 }
 
                 // Remet la ressource en état normal après la récolte
@@ -78,11 +79,11 @@ public class Resources implements Savable, Clickable {
                 Value.game.setUnusable(false, Value.game.getCellSize(), this.position); // Réduit la jauge
                 for (int i = 0; i <= item.getRecovery(); i++) {
                     int x = i; // Variable finale effective
-                    Timeline.add(new Task(x, () -> {
+                    Timeline.add(new Task(x, () -> SimulationClock.postView(this, () -> {
                         Value.game.setUnusable(false,
                                 (x) * ((double) Value.game.getCellSize() / (item.getRecovery())),
                                 this.position);
-                    }));
+                    })));
                 }
                 // Attente avant de pouvoir récolter à nouveau la ressource
                 Timeline.add(new Task(item.getRecovery(), () -> this.canCollect = true));
@@ -0,0 +1,609 @@
+package main.java.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import main.java.model.Interface.ChunkGenerator;
+import main.java.model.Interface.Clickable;
+
+/**
+ * La classe World range les cases de la carte par chunks de 32×32 dans une
+ * table creuse : seuls les chunks déjà visités existent en mémoire.
+ *
+ * Un chunk est généré la première fois qu'une de ses cases est lue ou écrite.
+ * Quand trop de chunks sont chargés, ceux qui n'ont pas servi depuis le
+ * dernier passage sont écrits sur le disque et retirés de la mémoire, puis
+ * relus s'ils servent à nouveau. La mémoire dépend donc de la zone explorée et
+ * non de la taille de la carte.
+ *
+ * Le générateur ne dépend que de la position du chunk : un chunk qui n'a pas
+ * été modifié depuis sa génération est simplement oublié à l'éviction, puis
+ * régénéré à l'identique. Une zone peut aussi être générée d'avance, ses
+ * chunks étant remplis en parallèle sur le pool ForkJoin commun.
+ *
+ * Une case vaut une {@link Map.ResourceList}, ou null tant qu'elle n'est pas
+ * fixée (pendant la génération). Chaque chunk range aussi les éléments
+ * cliquables de ses cases dans un tableau indexé par la case ; un chunk qui en
+ * contient n'est jamais évincé.
+ *
+ * Chaque chunk tient aussi une carte de bits des cases praticables (herbe,
+ * spawn, ou case pas encore fixée), mise à jour à chaque changement de case.
+ * C'est la seule source pour le déplacement, la recherche de chemin et la
+ * génération ; une ligne d'un chunk tient dans un mot de 32 bits, ce qui
+ * permet de tester des voisins par opérations sur les bits.
+ *
+ * Les chunks chargés sont rangés dans une table à adressage ouvert indexée par
+ * leur position : trouver une case ne crée aucun objet.
+ */
+public class World {
+    public static final int CHUNK_SHIFT = 5;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT; // 32 cases de côté
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final byte EMPTY = -1; // case pas encore fixée
+    private static final Map.ResourceList[] TYPES = Map.ResourceList.values();
+    private static final int PARALLEL_THRESHOLD = 16; // en dessous, les chunks sont générés en série
+
+    private final int rows; // nombre de lignes de la carte
+    private final int cols; // nombre de colonnes de la carte
+    private final ChunkGenerator generator; // remplit les nouveaux chunks, null pour les laisser vides
+    private long[] keys = new long[64]; // clés des chunks chargés (table à adressage ouvert)
+    private Chunk[] table = new Chunk[64]; // chunks chargés, à la place de leur clé, null pour une place vide
+    private int loaded = 0; // nombre de chunks chargés
+    private int maxLoadedChunks = 4096; // au-delà, les chunks inutilisés sont évincés
+    private File swapDirectory; // dossier des chunks évincés, créé au premier besoin
+    private Chunk lastChunk; // dernier chunk utilisé, les accès voisins sont fréquents
+
+    /**
+     * Crée un monde vide de la taille donnée.
+     *
+     * @param rows      Le nombre de lignes.
+     * @param cols      Le nombre de colonnes.
+     * @param generator Le générateur des chunks, appelé au premier accès (null
+     *                  pour des chunks vides).
+     */
+    public World(int rows, int cols, ChunkGenerator generator) {
+        this.rows = rows;
+        this.cols = cols;
+        this.generator = generator;
+    }
+
+    /**
+     * Retourne le contenu d'une case, en générant son chunk si besoin.
+     *
+     * @param row La ligne.
+     * @param col La colonne.
+     * @return Le contenu, null si la case n'est pas fixée.
+     */
+    public Map.ResourceList get(int row, int col) {
+        return getChunk(row, col).get(row & CHUNK_MASK, col & CHUNK_MASK);
+    }
+
+    /**
+     * Change le contenu d'une case, en générant son chunk si besoin.
+     *
+     * @param row      La ligne.
+     * @param col      La colonne.
+     * @param resource Le nouveau contenu.
+     */
+    public void set(int row, int col, Map.ResourceList resource) {
+        Chunk chunk = getChunk(row, col);
+        chunk.set(row & CHUNK_MASK, col & CHUNK_MASK, resource);
+        chunk.modified = true;
+    }
+
+    /**
+     * Vérifie si on peut marcher sur une case, d'après la carte de bits de son
+     * chunk.
+     *
+     * @param row La ligne.
+     * @param col La colonne.
+     * @return true si la case est dans la carte et praticable.
+     */
+    public boolean isWalkable(int row, int col) {
+        return isInBound(row, col) && getChunk(row, col).isWalkable(row & CHUNK_MASK, col & CHUNK_MASK);
+    }
+
+    /**
+     * Retourne les voisins praticables d'une case, lus dans les mots de bits
+     * des lignes du dessus, de la case et du dessous : bit 0 en haut, bit 1 en
+     * bas, bit 2 à gauche et bit 3 à droite. Le chunk voisin n'est lu que si la
+     * case est à son bord.
+     *
+     * @param row La ligne.
+     * @param col La colonne.
+     * @return Le masque des voisins praticables dans la carte.
+     */
+    public int getWalkableNeighbours(int row, int col) {
+        int localRow = row & CHUNK_MASK;
+        int localCol = col & CHUNK_MASK;
+        Chunk chunk = getChunk(row, col);
+        int line = chunk.getWalkableRow(localRow);
+        int mask = 0;
+        if (row > 0) {
+            int above = localRow > 0 ? chunk.getWalkableRow(localRow - 1)
+                    : getChunk(row - 1, col).getWalkableRow(CHUNK_MASK);
+            mask |= (above >>> localCol) & 1;
+        }
+        if (row + 1 < rows) {
+            int below = localRow < CHUNK_MASK ? chunk.getWalkableRow(localRow + 1)
+                    : getChunk(row + 1, col).getWalkableRow(0);
+            mask |= ((below >>> localCol) & 1) << 1;
+        }
+        if (col > 0) {
+            int left = localCol > 0 ? line << 1 : getChunk(row, col - 1).getWalkableRow(localRow) >>> CHUNK_MASK;
+            mask |= ((left >>> localCol) & 1) << 2;
+        }
+        if (col + 1 < cols) {
+            int right = localCol < CHUNK_MASK ? line >>> 1 : getChunk(row, col + 1).getWalkableRow(localRow) << CHUNK_MASK;
+            mask |= ((right >>> localCol) & 1) << 3;
+        }
+        return mask;
+    }
+
+    /**
+     * Vérifie si une case est dans la carte.
+     */
+    public boolean isInBound(int row, int col) {
+        return row >= 0 && col >= 0 && row < rows && col < cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Retourne le chunk qui contient une case, chargé ou généré si besoin.
+     *
+     * @param row La ligne de la case.
+     * @param col La colonne de la case.
+     * @return Le chunk.
+     */
+    public Chunk getChunk(int row, int col) {
+        int chunkRow = row >> CHUNK_SHIFT;
+        int chunkCol = col >> CHUNK_SHIFT;
+        Chunk chunk = lastChunk;
+        if (chunk != null && chunk.chunkRow == chunkRow && chunk.chunkCol == chunkCol) {
+            chunk.touched = true;
+            return chunk;
+        }
+        chunk = find(key(chunkRow, chunkCol));
+        if (chunk == null) {
+            if (loaded >= maxLoadedChunks)
+                evictUntouched();
+            chunk = load(chunkRow, chunkCol);
+            insert(chunk);
+        }
+        chunk.touched = true;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Génère d'avance les chunks d'une zone qui ne sont pas encore chargés. Le
+     * générateur ne touche qu'au chunk qu'il remplit, donc les chunks sont
+     * remplis en parallèle s'ils sont assez nombreux, avec le même résultat
+     * qu'en série.
+     *
+     * @param firstRow La première ligne de la zone.
+     * @param firstCol La première colonne de la zone.
+     * @param height   Le nombre de lignes de la zone.
+     * @param width    Le nombre de colonnes de la zone.
+     * @return Le nombre de chunks générés.
+     */
+    public int generate(int firstRow, int firstCol, int height, int width) {
+        if (generator == null)
+            return 0;
+        int lastRow = Math.min(rows, firstRow + height) - 1;
+        int lastCol = Math.min(cols, firstCol + width) - 1;
+        ArrayList<Chunk> created = new ArrayList<>();
+        for (int chunkRow = Math.max(0, firstRow) >> CHUNK_SHIFT; chunkRow <= lastRow >> CHUNK_SHIFT; chunkRow++) {
+            for (int chunkCol = Math.max(0, firstCol) >> CHUNK_SHIFT; chunkCol <= lastCol >> CHUNK_SHIFT; chunkCol++) {
+                File file = swapFile(chunkRow, chunkCol);
+                if (find(key(chunkRow, chunkCol)) == null && (file == null || !file.exists()))
+                    created.add(new Chunk(this, chunkRow, chunkCol));
+            }
+        }
+        if (created.size() >= PARALLEL_THRESHOLD) {
+            created.parallelStream().forEach(generator::generate);
+        } else {
+            created.forEach(generator::generate);
+        }
+        for (Chunk chunk : created) {
+            insert(chunk);
+        }
+        return created.size();
+    }
+
+    /**
+     * Relit un chunk évincé, ou en crée un nouveau.
+     */
+    private Chunk load(int chunkRow, int chunkCol) {
+        File file = swapFile(chunkRow, chunkCol);
+        if (file != null && file.exists())
+            return readSwapped(chunkRow, chunkCol, file);
+        Chunk chunk = new Chunk(this, chunkRow, chunkCol);
+        if (generator != null)
+            generator.generate(chunk);
+        return chunk;
+    }
+
+    /**
+     * Relit un chunk évincé depuis son fichier.
+     */
+    private Chunk readSwapped(int chunkRow, int chunkCol, File file) {
+        Chunk chunk = new Chunk(this, chunkRow, chunkCol);
+        try {
+            byte[] cells = Files.readAllBytes(file.toPath());
+            System.arraycopy(cells, 0, chunk.cells, 0, chunk.cells.length);
+            chunk.updateWalkable();
+            chunk.modified = true; // il reste sur le disque tel quel
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunk;
+    }
+
+    /**
+     * Crée un chunk vide à la place d'un chunk pas encore chargé, sans le
+     * générer, pour y recopier des cases sauvegardées. Le chunk est marqué
+     * modifié.
+     *
+     * @param row La ligne d'une case du chunk.
+     * @param col La colonne d'une case du chunk.
+     * @return Le chunk à remplir, ou le chunk déjà chargé.
+     */
+    public Chunk restoreChunk(int row, int col) {
+        int chunkRow = row >> CHUNK_SHIFT;
+        int chunkCol = col >> CHUNK_SHIFT;
+        Chunk chunk = find(key(chunkRow, chunkCol));
+        if (chunk == null) {
+            if (loaded >= maxLoadedChunks)
+                evictUntouched();
+            chunk = new Chunk(this, chunkRow, chunkCol);
+            insert(chunk);
+        }
+        chunk.touched = true;
+        chunk.modified = true;
+        return chunk;
+    }
+
+    /**
+     * Retourne les chunks qui ne peuvent pas être régénérés : ceux modifiés
+     * depuis leur génération, chargés ou évincés sur le disque (tous les chunks
+     * s'il n'y a pas de générateur). Les chunks évincés sont relus sans être
+     * rechargés dans la table.
+     *
+     * @return Les chunks, dans un ordre quelconque.
+     */
+    public List<Chunk> getModifiedChunks() {
+        ArrayList<Chunk> modified = new ArrayList<>();
+        for (Chunk chunk : table) {
+            if (chunk != null && (chunk.modified || generator == null))
+                modified.add(chunk);
+        }
+        File[] files = swapDirectory == null ? null : swapDirectory.listFiles();
+        if (files == null)
+            return modified;
+        for (File file : files) {
+            String[] position = file.getName().replace(".chunk", "").split("_");
+            int chunkRow = Integer.parseInt(position[0]);
+            int chunkCol = Integer.parseInt(position[1]);
+            if (find(key(chunkRow, chunkCol)) == null)
+                modified.add(readSwapped(chunkRow, chunkCol, file));
+        }
+        return modified;
+    }
+
+    /**
+     * Retourne les chunks chargés, sans en générer aucun.
+     *
+     * @return Les chunks, dans un ordre quelconque.
+     */
+    public List<Chunk> getChunks() {
+        ArrayList<Chunk> chunks = new ArrayList<>(loaded);
+        for (Chunk chunk : table) {
+            if (chunk != null)
+                chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Évince les chunks qui n'ont pas servi depuis le dernier passage, et
+     * marque les autres comme inutilisés. Un chunk modifié (ou sans générateur)
+     * est écrit sur le disque, les autres seront régénérés. Les chunks qui
+     * contiennent des éléments cliquables restent chargés.
+     *
+     * @return Le nombre de chunks évincés.
+     */
+    public int evictUntouched() {
+        ArrayList<Chunk> kept = new ArrayList<>(loaded);
+        int evicted = 0;
+        for (Chunk chunk : table) {
+            if (chunk == null)
+                continue;
+            if (chunk.touched || chunk.clickableCount > 0) {
+                chunk.touched = false;
+                kept.add(chunk);
+            } else {
+                if (chunk.modified || generator == null)
+                    save(chunk);
+                evicted++;
+            }
+        }
+        // la table est reconstruite avec les chunks gardés
+        int capacity = 64;
+        while (capacity < kept.size() * 2)
+            capacity <<= 1;
+        keys = new long[capacity];
+        table = new Chunk[capacity];
+        loaded = 0;
+        for (Chunk chunk : kept) {
+            insert(chunk);
+        }
+        lastChunk = null;
+        return evicted;
+    }
+
+    /**
+     * @return le chunk chargé d'une clé, ou null
+     */
+    private Chunk find(long key) {
+        int mask = table.length - 1;
+        for (int i = slot(key, mask); table[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return table[i];
+        }
+        return null;
+    }
+
+    /**
+     * Ajoute un chunk dans la table, en l'agrandissant si elle est à moitié
+     * pleine.
+     */
+    private void insert(Chunk chunk) {
+        if ((loaded + 1) * 2 > table.length) {
+            Chunk[] old = table;
+            keys = new long[old.length * 2];
+            table = new Chunk[old.length * 2];
+            loaded = 0;
+            for (Chunk moved : old) {
+                if (moved != null)
+                    insert(moved);
+            }
+        }
+        long key = key(chunk.chunkRow, chunk.chunkCol);
+        int mask = table.length - 1;
+        int i = slot(key, mask);
+        while (table[i] != null)
+            i = (i + 1) & mask;
+        keys[i] = key;
+        table[i] = chunk;
+        loaded++;
+    }
+
+    /**
+     * @return la première place d'une clé dans une table de taille mask + 1
+     */
+    private static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /**
+     * Retourne l'élément cliquable d'une case.
+     *
+     * @param row La ligne.
+     * @param col La colonne.
+     * @return L'élément, ou null s'il n'y en a pas.
+     */
+    public Clickable getClickable(int row, int col) {
+        Chunk chunk = getChunk(row, col);
+        return chunk.clickables == null ? null : chunk.clickables[((row & CHUNK_MASK) << CHUNK_SHIFT) | (col & CHUNK_MASK)];
+    }
+
+    /**
+     * Change l'élément cliquable d'une case.
+     *
+     * @param row       La ligne.
+     * @param col       La colonne.
+     * @param clickable Le nouvel élément, null pour le retirer.
+     */
+    public void setClickable(int row, int col, Clickable clickable) {
+        Chunk chunk = getChunk(row, col);
+        if (chunk.clickables == null) {
+            if (clickable == null)
+                return;
+            chunk.clickables = new Clickable[CHUNK_SIZE * CHUNK_SIZE];
+        }
+        int cell = ((row & CHUNK_MASK) << CHUNK_SHIFT) | (col & CHUNK_MASK);
+        if (chunk.clickables[cell] == null && clickable != null)
+            chunk.clickableCount++;
+        else if (chunk.clickables[cell] != null && clickable == null)
+            chunk.clickableCount--;
+        chunk.clickables[cell] = clickable;
+    }
+
+    /**
+     * Écrit un chunk dans le dossier des chunks évincés.
+     */
+    private void save(Chunk chunk) {
+        try {
+            if (swapDirectory == null) {
+                swapDirectory = Files.createTempDirectory("forgefactory-chunks").toFile();
+                swapDirectory.deleteOnExit();
+            }
+            File file = swapFile(chunk.chunkRow, chunk.chunkCol);
+            Files.write(file.toPath(), chunk.cells);
+            file.deleteOnExit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return le fichier d'un chunk évincé, null si rien n'a encore été évincé
+     */
+    private File swapFile(int chunkRow, int chunkCol) {
+        return swapDirectory == null ? null : new File(swapDirectory, chunkRow + "_" + chunkCol + ".chunk");
+    }
+
+    /**
+     * Change le nombre de chunks gardés en mémoire avant d'évincer ceux qui ne
+     * servent pas.
+     *
+     * @param maxLoadedChunks Le nombre de chunks (au moins 1).
+     */
+    public void setMaxLoadedChunks(int maxLoadedChunks) {
+        this.maxLoadedChunks = Math.max(1, maxLoadedChunks);
+    }
+
+    /**
+     * @return le nombre de chunks en mémoire
+     */
+    public int getLoadedChunks() {
+        return loaded;
+    }
+
+    /**
+     * @return la clé d'un chunk dans la table
+     */
+    private static long key(int chunkRow, int chunkCol) {
+        return ((long) chunkRow << 32) | (chunkCol & 0xffffffffL);
+    }
+
+    /**
+     * Un carré de 32×32 cases du monde. Les cases hors de la carte (au bord)
+     * existent mais ne sont jamais utilisées.
+     */
+    public static class Chunk {
+        private final World world; // le monde qui contient le chunk
+        private final int chunkRow; // la position du chunk, en chunks
+        private final int chunkCol;
+        private final byte[] cells = new byte[CHUNK_SIZE * CHUNK_SIZE]; // ordinal de chaque case, ou EMPTY
+        private final long[] walkable = new long[CHUNK_SIZE * CHUNK_SIZE / Long.SIZE]; // un bit par case praticable
+        private boolean touched; // utilisé depuis le dernier passage d'éviction
+        private boolean modified; // changé depuis sa génération
+        private Clickable[] clickables; // éléments cliquables par case, créé au premier
+        private int clickableCount; // nombre d'éléments cliquables du chunk
+
+        private Chunk(World world, int chunkRow, int chunkCol) {
+            this.world = world;
+            this.chunkRow = chunkRow;
+            this.chunkCol = chunkCol;
+            Arrays.fill(cells, EMPTY);
+            Arrays.fill(walkable, -1L); // une case pas fixée est praticable
+        }
+
+        /**
+         * Retourne le contenu d'une case du chunk.
+         *
+         * @param localRow La ligne dans le chunk (0 à 31).
+         * @param localCol La colonne dans le chunk (0 à 31).
+         * @return Le contenu, null si la case n'est pas fixée.
+         */
+        public Map.ResourceList get(int localRow, int localCol) {
+            byte cell = cells[(localRow << CHUNK_SHIFT) | localCol];
+            return cell == EMPTY ? null : TYPES[cell];
+        }
+
+        /**
+         * Change le contenu d'une case du chunk.
+         *
+         * @param localRow La ligne dans le chunk (0 à 31).
+         * @param localCol La colonne dans le chunk (0 à 31).
+         * @param resource Le nouveau contenu, null pour une case pas fixée.
+         */
+        public void set(int localRow, int localCol, Map.ResourceList resource) {
+            int cell = (localRow << CHUNK_SHIFT) | localCol;
+            cells[cell] = resource == null ? EMPTY : (byte) resource.ordinal();
+            if (isWalkable(resource))
+                walkable[cell >>> 6] |= 1L << cell;
+            else
+                walkable[cell >>> 6] &= ~(1L << cell);
+        }
+
+        /**
+         * Vérifie si on peut marcher sur une case du chunk.
+         *
+         * @param localRow La ligne dans le chunk (0 à 31).
+         * @param localCol La colonne dans le chunk (0 à 31).
+         * @return true si la case est praticable.
+         */
+        public boolean isWalkable(int localRow, int localCol) {
+            int cell = (localRow << CHUNK_SHIFT) | localCol;
+            return (walkable[cell >>> 6] & (1L << cell)) != 0;
+        }
+
+        /**
+         * Retourne les cases praticables d'une ligne du chunk, le bit i valant
+         * la colonne i.
+         *
+         * @param localRow La ligne dans le chunk (0 à 31).
+         * @return Les 32 bits de la ligne.
+         */
+        public int getWalkableRow(int localRow) {
+            return (int) (walkable[localRow >>> 1] >>> ((localRow & 1) << CHUNK_SHIFT));
+        }
+
+        /**
+         * Recalcule la carte de bits après une copie directe des cases.
+         */
+        private void updateWalkable() {
+            Arrays.fill(walkable, 0);
+            for (int cell = 0; cell < cells.length; cell++) {
+                if (isWalkable(cells[cell] == EMPTY ? null : TYPES[cells[cell]]))
+                    walkable[cell >>> 6] |= 1L << cell;
+            }
+        }
+
+        /**
+         * @return true si une case de ce contenu est praticable
+         */
+        private static boolean isWalkable(Map.ResourceList resource) {
+            return resource == null || resource == Map.ResourceList.NULL || resource == Map.ResourceList.SPAWN;
+        }
+
+        /**
+         * @return la ligne de la première case du chunk dans la carte
+         */
+        public int getFirstRow() {
+            return chunkRow << CHUNK_SHIFT;
+        }
+
+        /**
+         * @return la colonne de la première case du chunk dans la carte
+         */
+        public int getFirstCol() {
+            return chunkCol << CHUNK_SHIFT;
+        }
+
+        /**
+         * @return le nombre de lignes du chunk dans la carte (moins de 32 au bord)
+         */
+        public int getRows() {
+            return Math.max(0, Math.min(CHUNK_SIZE, world.rows - getFirstRow()));
+        }
+
+        /**
+         * @return le nombre de colonnes du chunk dans la carte (moins de 32 au bord)
+         */
+        public int getCols() {
+            return Math.max(0, Math.min(CHUNK_SIZE, world.cols - getFirstCol()));
+        }
+
+        /**
+         * @return le monde qui contient le chunk
+         */
+        public World getWorld() {
+            return world;
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package main.java.model.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import main.java.model.Exception.InvalidCatalogFormat;
+import main.java.model.Map.ResourceList;
+import main.java.model.util.Couple;
+import main.java.model.util.Objet;
+import main.java.model.util.Recipe;
+import main.java.model.util.RecipeMap;
+
+/**
+ * La classe Catalog contient la définition des objets et des recettes du jeu,
+ * lue dans un fichier texte (voir Resources/data/catalog.txt).
+ *
+ * Le fichier est compilé en tableaux immuables indexés par id : une colonne par
+ * propriété des objets, et pour les recettes leurs ingrédients mis bout à bout
+ * (ingredientStart[r] à ingredientStart[r + 1] pour la recette r). Les noms ne
+ * servent qu'à la lecture du texte, ensuite tout se fait par id.
+ *
+ * Le résultat est écrit dans un cache binaire à côté du texte ; tant que le
+ * texte ne change pas (même taille, même date), le démarrage relit le cache au
+ * lieu de refaire l'analyse.
+ */
+public final class Catalog {
+    private static final String textPath = "ForgeFactory/Resources/data/catalog.txt";
+    private static final String cachePath = "ForgeFactory/Resources/data/catalog.bin";
+    private static final int CACHE_MAGIC = 0x46464354; // "FFCT"
+    private static final int CACHE_VERSION = 1;
+
+    // --- Objets, par id ---
+    private final String[] itemNames;
+    private final int[] buy;
+    private final int[] sell;
+    private final int[] duration; // durée de récolte, 0 si l'objet ne se récolte pas
+    private final int[] recovery;
+    private final int[] quantity;
+
+    // --- Ressources de la carte, par rang de ResourceList ---
+    private final int[] resourceItem; // id de l'objet récolté, -1 si aucun
+
+    // --- Recettes, par index ---
+    private final int[] recipeResult;
+    private final int[] recipeQuantity;
+    private final int[] recipeTime;
+    private final int[] ingredientStart; // une case de plus que de recettes
+    private final int[] ingredientItem;
+    private final int[] ingredientQuantity;
+
+    private Catalog(String[] itemNames, int[] buy, int[] sell, int[] duration, int[] recovery, int[] quantity,
+            int[] resourceItem, int[] recipeResult, int[] recipeQuantity, int[] recipeTime, int[] ingredientStart,
+            int[] ingredientItem, int[] ingredientQuantity) {
+        this.itemNames = itemNames;
+        this.buy = buy;
+        this.sell = sell;
+        this.duration = duration;
+        this.recovery = recovery;
+        this.quantity = quantity;
+        this.resourceItem = resourceItem;
+        this.recipeResult = recipeResult;
+        this.recipeQuantity = recipeQuantity;
+        this.recipeTime = recipeTime;
+        this.ingredientStart = ingredientStart;
+        this.ingredientItem = ingredientItem;
+        this.ingredientQuantity = ingredientQuantity;
+    }
+
+    /**
+     * Charge le catalogue du jeu : depuis le cache s'il correspond au fichier
+     * texte, sinon depuis le texte (et le cache est réécrit).
+     *
+     * @return Le catalogue.
+     */
+    static Catalog loadDefault() {
+        try {
+            return load(new File(textPath), new File(cachePath));
+        } catch (IOException | InvalidCatalogFormat e) {
+            Value.printError("Impossible de charger le catalogue : " + e.getMessage());
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Charge un catalogue depuis un fichier texte, en passant par son cache
+     * binaire.
+     *
+     * @param text  Le fichier texte.
+     * @param cache Le cache binaire (créé ou remplacé si besoin).
+     * @return Le catalogue.
+     * @throws IOException          Si aucun des deux fichiers ne peut être lu.
+     * @throws InvalidCatalogFormat Si le texte est mal formé.
+     */
+    public static Catalog load(File text, File cache) throws IOException, InvalidCatalogFormat {
+        long size = text.exists() ? text.length() : -1;
+        long modified = text.exists() ? text.lastModified() : -1;
+
+        if (cache.exists()) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(cache)))) {
+                Catalog catalog = readCache(in, size, modified);
+                if (catalog != null)
+                    return catalog;
+            } catch (IOException e) {
+                // cache illisible : on repart du texte
+            }
+        }
+
+        Catalog catalog;
+        try (BufferedReader reader = new BufferedReader(new FileReader(text))) {
+            catalog = parse(reader);
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(cache)))) {
+            catalog.writeCache(out, size, modified);
+        } catch (IOException e) {
+            Value.printError("Impossible d'écrire le cache du catalogue : " + e.getMessage());
+        }
+        return catalog;
+    }
+
+    /**
+     * Analyse le texte du catalogue.
+     *
+     * @param reader Le texte.
+     * @return Le catalogue.
+     * @throws IOException          Si le texte ne peut être lu.
+     * @throws InvalidCatalogFormat Si une ligne est mal formée.
+     */
+    public static Catalog parse(BufferedReader reader) throws IOException, InvalidCatalogFormat {
+        HashMap<String, Integer> ids = new HashMap<>(); // seulement pendant l'analyse
+        IntColumn buy = new IntColumn(), sell = new IntColumn(), duration = new IntColumn(),
+                recovery = new IntColumn(), quantity = new IntColumn();
+        IntColumn recipeResult = new IntColumn(), recipeQuantity = new IntColumn(), recipeTime = new IntColumn(),
+                ingredientStart = new IntColumn(), ingredientItem = new IntColumn(),
+                ingredientQuantity = new IntColumn();
+        String[] names = new String[16];
+        int[] resourceItem = new int[ResourceList.values().length];
+        Arrays.fill(resourceItem, -1);
+        ingredientStart.add(0);
+
+        // les recettes peuvent citer des objets définis plus loin : on les lit après
+        List<String[]> recipeLines = new ArrayList<>();
+        List<String[]> resourceLines = new ArrayList<>();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] words = line.split("\\s+");
+            switch (words[0]) {
+                case "item":
+                    if (words.length != 4 && words.length != 7)
+                        throw new InvalidCatalogFormat("ligne " + lineNumber + " : item mal formé");
+                    if (ids.containsKey(words[1]))
+                        throw new InvalidCatalogFormat("ligne " + lineNumber + " : " + words[1] + " défini deux fois");
+                    int id = ids.size();
+                    ids.put(words[1], id);
+                    if (id == names.length)
+                        names = Arrays.copyOf(names, id * 2);
+                    names[id] = words[1];
+                    buy.add(number(words[2], lineNumber));
+                    sell.add(number(words[3], lineNumber));
+                    duration.add(words.length == 7 ? number(words[4], lineNumber) : 0);
+                    recovery.add(words.length == 7 ? number(words[5], lineNumber) : 0);
+                    quantity.add(words.length == 7 ? number(words[6], lineNumber) : 0);
+                    break;
+                case "resource":
+                    if (words.length != 3)
+                        throw new InvalidCatalogFormat("ligne " + lineNumber + " : resource mal formé");
+                    resourceLines.add(new String[] { words[1], words[2], String.valueOf(lineNumber) });
+                    break;
+                case "recipe":
+                    if (words.length < 5)
+                        throw new InvalidCatalogFormat("ligne " + lineNumber + " : recipe mal formé");
+                    String[] withLine = Arrays.copyOf(words, words.length + 1);
+                    withLine[words.length] = String.valueOf(lineNumber);
+                    recipeLines.add(withLine);
+                    break;
+                default:
+                    throw new InvalidCatalogFormat("ligne " + lineNumber + " : " + words[0] + " inconnu");
+            }
+        }
+
+        for (String[] words : resourceLines) {
+            int at = Integer.parseInt(words[2]);
+            try {
+                resourceItem[ResourceList.valueOf(words[0]).ordinal()] = idOf(ids, words[1], at);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidCatalogFormat("ligne " + at + " : ressource " + words[0] + " inconnue");
+            }
+        }
+
+        for (String[] words : recipeLines) {
+            int at = Integer.parseInt(words[words.length - 1]);
+            recipeResult.add(idOf(ids, words[1], at));
+            recipeQuantity.add(number(words[2], at));
+            recipeTime.add(number(words[3], at));
+            for (int i = 4; i < words.length - 1; i++) {
+                String[] ingredient = words[i].split(":");
+                if (ingredient.length != 2)
+                    throw new InvalidCatalogFormat("ligne " + at + " : ingrédient " + words[i] + " mal formé");
+                ingredientItem.add(idOf(ids, ingredient[0], at));
+                ingredientQuantity.add(number(ingredient[1], at));
+            }
+            ingredientStart.add(ingredientItem.size());
+        }
+
+        return new Catalog(Arrays.copyOf(names, ids.size()), buy.toArray(), sell.toArray(), duration.toArray(),
+                recovery.toArray(), quantity.toArray(), resourceItem, recipeResult.toArray(),
+                recipeQuantity.toArray(), recipeTime.toArray(), ingredientStart.toArray(), ingredientItem.toArray(),
+                ingredientQuantity.toArray());
+    }
+
+    private static int idOf(HashMap<String, Integer> ids, String name, int lineNumber) throws InvalidCatalogFormat {
+        Integer id = ids.get(name);
+        if (id == null)
+            throw new InvalidCatalogFormat("ligne " + lineNumber + " : objet " + name + " inconnu");
+        return id;
+    }
+
+    private static int number(String word, int lineNumber) throws InvalidCatalogFormat {
+        try {
+            int value = Integer.parseInt(word);
+            if (value < 0)
+                throw new InvalidCatalogFormat("ligne " + lineNumber + " : " + word + " est négatif");
+            return value;
+        } catch (NumberFormatException e) {
+            throw new InvalidCatalogFormat("ligne " + lineNumber + " : " + word + " n'est pas un nombre");
+        }
+    }
+
+    /**
+     * Écrit le catalogue compilé dans le cache, avec la taille et la date du
+     * texte dont il provient.
+     */
+    private void writeCache(DataOutputStream out, long textSize, long textModified) throws IOException {
+        out.writeInt(CACHE_MAGIC);
+        out.writeInt(CACHE_VERSION);
+        out.writeLong(textSize);
+        out.writeLong(textModified);
+        out.writeInt(itemNames.length);
+        for (String name : itemNames) {
+            out.writeUTF(name);
+        }
+        for (int[] column : new int[][] { buy, sell, duration, recovery, quantity, resourceItem, recipeResult,
+                recipeQuantity, recipeTime, ingredientStart, ingredientItem, ingredientQuantity }) {
+            out.writeInt(column.length);
+            for (int value : column) {
+                out.writeInt(value);
+            }
+        }
+    }
+
+    /**
+     * Relit le cache, s'il provient bien du texte actuel. Sans texte, le cache
+     * est utilisé tel quel.
+     *
+     * @return Le catalogue, ou null si le cache est périmé.
+     */
+    private static Catalog readCache(DataInputStream in, long textSize, long textModified) throws IOException {
+        if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION)
+            return null;
+        long size = in.readLong();
+        long modified = in.readLong();
+        if (textSize >= 0 && (size != textSize || modified != textModified))
+            return null;
+        String[] names = new String[in.readInt()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = in.readUTF();
+        }
+        int[][] columns = new int[12][];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = new int[in.readInt()];
+            for (int i = 0; i < columns[c].length; i++) {
+                columns[c][i] = in.readInt();
+            }
+        }
+        if (columns[5].length != ResourceList.values().length)
+            return null;
+        return new Catalog(names, columns[0], columns[1], columns[2], columns[3], columns[4], columns[5], columns[6],
+                columns[7], columns[8], columns[9], columns[10], columns[11]);
+    }
+
+    // --- Construction des objets du jeu ---
+
+    /**
+     * Crée les objets du jeu, rangés par id.
+     *
+     * @return Les objets.
+     */
+    public Objet[] buildItems() {
+        Objet[] items = new Objet[itemNames.length];
+        for (int id = 0; id < items.length; id++) {
+            items[id] = new Objet(id, itemNames[id], buy[id], sell[id], duration[id], recovery[id], quantity[id]);
+        }
+        return items;
+    }
+
+    /**
+     * Associe chaque ressource de la carte à l'objet qu'elle donne.
+     *
+     * @param items Les objets du jeu, par id.
+     * @return Les objets récoltés, par rang de ResourceList (null si aucun).
+     */
+    public Objet[] buildResourceItems(Objet[] items) {
+        Objet[] result = new Objet[resourceItem.length];
+        for (int r = 0; r < result.length; r++) {
+            result[r] = resourceItem[r] < 0 ? null : items[resourceItem[r]];
+        }
+        return result;
+    }
+
+    /**
+     * Crée les recettes du jeu, dans l'ordre du catalogue.
+     *
+     * @param items Les objets du jeu, par id.
+     * @return Les recettes.
+     */
+    public RecipeMap buildRecipes(Objet[] items) {
+        Recipe[] recipes = new Recipe[recipeResult.length];
+        for (int r = 0; r < recipes.length; r++) {
+            Couple<Objet, Integer>[] ingredients = newIngredients(ingredientStart[r + 1] - ingredientStart[r]);
+            for (int i = 0; i < ingredients.length; i++) {
+                int at = ingredientStart[r] + i;
+                ingredients[i] = new Couple<>(items[ingredientItem[at]], ingredientQuantity[at]);
+            }
+            recipes[r] = new Recipe(items[recipeResult[r]], recipeQuantity[r], recipeTime[r], ingredients);
+        }
+        return new RecipeMap(items.length, recipes);
+    }
+
+    /**
+     * Crée un tableau d'ingrédients vide (Java ne crée pas de tableau générique).
+     *
+     * @param length Le nombre d'ingrédients.
+     * @return Le tableau.
+     */
+    @SuppressWarnings("unchecked")
+    private static Couple<Objet, Integer>[] newIngredients(int length) {
+        return (Couple<Objet, Integer>[]) new Couple<?, ?>[length];
+    }
+
+    /**
+     * @return le nombre d'objets du catalogue
+     */
+    public int itemCount() {
+        return itemNames.length;
+    }
+
+    /**
+     * @return le nombre de recettes du catalogue
+     */
+    public int recipeCount() {
+        return recipeResult.length;
+    }
+
+    /**
+     * Une colonne d'entiers qui s'agrandit, sans boxing, pour l'analyse.
+     */
+    private static final class IntColumn {
+        private int[] values = new int[16];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -20,6 +20,12 @@ public class Value {
     public final static int maxSpeed = 5;
     // Taille maximale pour un objet de type XL
     public final static int maxXL = 3;
+    // Probabilité qu'une machine fragile casse à chaque cycle
+    public final static double breakChance = 0.1;
+    // Nombre de crafts que le joueur peut faire en même temps
+    public final static int playerCraftSlots = 3;
+    // Temps en secondes entre deux regroupements des machines identiques
+    public final static double aggregationPeriod = 10;
 
     // Références globales pour les vues et contrôleurs
     public static GUI frame; // Fenêtre graphique principale du jeu
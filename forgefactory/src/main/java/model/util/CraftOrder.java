@@ -0,0 +1,240 @@
+package main.java.model.util;
+
+import java.util.Comparator;
+import main.java.model.Exception.InvalidSaveFormat;
+import main.java.model.Inventory;
+import main.java.model.storage.DB;
+
+/**
+ * La classe CraftOrder représente une commande de fabrication du joueur : une
+ * recette fabriquée plusieurs fois d'affilée.
+ *
+ * Les ingrédients de toute la commande sont retirés au joueur au moment de la
+ * commande. Les résultats sont ensuite livrés dans son inventaire par paquets
+ * (au plus CHUNKS livraisons par commande) plutôt qu'une tâche et une mise à
+ * jour de la vue par objet. Une commande ne contient que des données : elle est
+ * enregistrée dans la sauvegarde et reprise au chargement.
+ */
+public class CraftOrder {
+    private static final int CHUNKS = 10; // Nombre maximum de livraisons par commande
+    private static long nextSequence = 0; // Numéro de la prochaine commande créée
+
+    /**
+     * Ordre de passage des commandes en attente : la plus prioritaire d'abord,
+     * puis la plus ancienne.
+     */
+    public static final Comparator<CraftOrder> QUEUE_ORDER = Comparator
+            .comparingInt((CraftOrder order) -> -order.priority)
+            .thenComparingLong(order -> order.sequence);
+
+    private final Inventory target; // L'inventaire qui reçoit les résultats
+    private final Objet result; // L'objet fabriqué
+    private final int resultQuantity; // La quantité d'objets fabriqués par fabrication
+    private final int secondsPerCraft; // La durée d'une fabrication en secondes
+    private final int count; // Le nombre de fabrications commandées
+    private final long[] reservedPerCraft; // Les objets retirés au joueur pour une fabrication, par id
+    private final long[] leftovers; // Objets rendus avec la dernière livraison, par id
+    private final int priority; // Priorité dans la file d'attente
+    private final long sequence; // Ordre de création, pour départager les priorités égales
+    private int done = 0; // Le nombre de fabrications déjà livrées
+
+    /**
+     * Constructeur de la classe CraftOrder.
+     *
+     * @param target           L'inventaire qui reçoit les résultats.
+     * @param result           L'objet fabriqué.
+     * @param resultQuantity   La quantité fabriquée par fabrication.
+     * @param secondsPerCraft  La durée d'une fabrication en secondes.
+     * @param count            Le nombre de fabrications.
+     * @param reservedPerCraft Les objets déjà retirés au joueur pour une
+     *                         fabrication, par id d'objet.
+     * @param leftovers        Les objets rendus avec la dernière livraison, par
+     *                         id d'objet.
+     * @param priority         La priorité de la commande (la plus grande passe
+     *                         d'abord).
+     */
+    public CraftOrder(Inventory target, Objet result, int resultQuantity, int secondsPerCraft, int count,
+            long[] reservedPerCraft, long[] leftovers, int priority) {
+        if (count <= 0)
+            throw new IllegalArgumentException("Illegal craft count");
+        this.target = target;
+        this.result = result;
+        this.resultQuantity = resultQuantity;
+        this.secondsPerCraft = secondsPerCraft;
+        this.count = count;
+        this.reservedPerCraft = reservedPerCraft;
+        this.leftovers = leftovers;
+        this.priority = priority;
+        synchronized (CraftOrder.class) {
+            this.sequence = nextSequence++;
+        }
+    }
+
+    /**
+     * Constructeur d'une commande qui fabrique une recette count fois, ses
+     * ingrédients ayant déjà été retirés au joueur.
+     *
+     * @param target   L'inventaire qui reçoit les résultats.
+     * @param recipe   La recette.
+     * @param count    Le nombre de fabrications.
+     * @param priority La priorité de la commande.
+     */
+    public CraftOrder(Inventory target, Recipe recipe, int count, int priority) {
+        this(target, recipe.getResult(), recipe.getResultQuantity(), recipe.getTime(), count, ingredientsOf(recipe),
+                new long[DB.item.length], priority);
+    }
+
+    /**
+     * @return les ingrédients d'une recette, par id d'objet
+     */
+    private static long[] ingredientsOf(Recipe recipe) {
+        long[] quantities = new long[DB.item.length];
+        for (Couple<Objet, Integer> ingredient : recipe.getIngredients()) {
+            quantities[ingredient.getKey().getId()] += ingredient.getValue();
+        }
+        return quantities;
+    }
+
+    /**
+     * Retourne le nombre de fabrications du prochain paquet.
+     *
+     * @return Le nombre de fabrications à livrer ensemble.
+     */
+    public int nextChunk() {
+        int chunk = Math.max(1, (count + CHUNKS - 1) / CHUNKS);
+        return Math.min(chunk, count - done);
+    }
+
+    /**
+     * Livre le résultat de plusieurs fabrications dans l'inventaire, et les
+     * objets en trop avec la dernière.
+     *
+     * @param crafts Le nombre de fabrications terminées.
+     */
+    public void deliver(int crafts) {
+        done += crafts;
+        target.addItem(result, resultQuantity * crafts);
+        if (isDone()) {
+            for (int id = 0; id < leftovers.length; id++) {
+                if (leftovers[id] > 0)
+                    target.addItem(DB.item[id], (int) leftovers[id]);
+            }
+        }
+    }
+
+    /**
+     * @return vrai si toutes les fabrications ont été livrées
+     */
+    public boolean isDone() {
+        return done >= count;
+    }
+
+    /**
+     * Retourne les objets retirés au joueur pour les fabrications pas encore
+     * livrées.
+     *
+     * @return Les quantités par id d'objet.
+     */
+    public long[] getRemainingReserved() {
+        long[] remaining = new long[reservedPerCraft.length];
+        for (int id = 0; id < remaining.length; id++) {
+            remaining[id] = reservedPerCraft[id] * (count - done);
+        }
+        return remaining;
+    }
+
+    public Objet getResult() {
+        return result;
+    }
+
+    public int getSecondsPerCraft() {
+        return secondsPerCraft;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getDone() {
+        return done;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Sauvegarde la commande : résultat, quantité, durée, nombre, avancement,
+     * priorité, objets réservés et objets en trop.
+     *
+     * @return La commande sous forme de chaîne.
+     */
+    public String save() {
+        return result.getId() + "," + resultQuantity + "," + secondsPerCraft + "," + count + "," + done + ","
+                + priority + "," + saveQuantities(reservedPerCraft) + "," + saveQuantities(leftovers);
+    }
+
+    /**
+     * Recrée une commande sauvegardée avec {@link #save()}, avec l'avancement
+     * qu'elle avait.
+     *
+     * @param saved  La commande sauvegardée.
+     * @param target L'inventaire qui reçoit les résultats.
+     * @return La commande.
+     * @throws InvalidSaveFormat Si la chaîne est mal formée.
+     */
+    public static CraftOrder restore(String saved, Inventory target) throws InvalidSaveFormat {
+        String[] fields = saved.split(",", -1);
+        if (fields.length != 8)
+            throw new InvalidSaveFormat();
+        try {
+            int resultId = Integer.parseInt(fields[0]);
+            if (resultId < 0 || resultId >= DB.item.length)
+                throw new InvalidSaveFormat();
+            CraftOrder order = new CraftOrder(target, DB.item[resultId], Integer.parseInt(fields[1]),
+                    Integer.parseInt(fields[2]), Integer.parseInt(fields[3]), restoreQuantities(fields[6]),
+                    restoreQuantities(fields[7]), Integer.parseInt(fields[5]));
+            order.done = Integer.parseInt(fields[4]);
+            if (order.done < 0 || order.isDone())
+                throw new InvalidSaveFormat();
+            return order;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSaveFormat();
+        }
+    }
+
+    /**
+     * Écrit des quantités par id d'objet sous la forme "id:quantité/" (comme
+     * l'inventaire), en omettant les zéros.
+     */
+    private static String saveQuantities(long[] quantities) {
+        StringBuilder saved = new StringBuilder();
+        for (int id = 0; id < quantities.length; id++) {
+            if (quantities[id] != 0)
+                saved.append(id).append(':').append(quantities[id]).append('/');
+        }
+        return saved.toString();
+    }
+
+    /**
+     * Relit des quantités écrites par saveQuantities.
+     */
+    private static long[] restoreQuantities(String saved) throws InvalidSaveFormat {
+        long[] quantities = new long[DB.item.length];
+        for (String pair : saved.split("/")) {
+            if (pair.isEmpty())
+                continue;
+            String[] association = pair.split(":");
+            int id = Integer.parseInt(association[0]);
+            if (association.length != 2 || id < 0 || id >= quantities.length)
+                throw new InvalidSaveFormat();
+            quantities[id] = Long.parseLong(association[1]);
+        }
+        return quantities;
+    }
+
+    @Override
+    public String toString() {
+        return result.getName() + " " + done + "/" + count;
+    }
+}
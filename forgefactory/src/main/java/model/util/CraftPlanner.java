@@ -0,0 +1,239 @@
+package main.java.model.util;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import main.java.model.Inventory;
+import main.java.model.storage.DB;
+
+/**
+ * La classe CraftPlanner calcule comment fabriquer une recette à partir de
+ * l'inventaire du joueur, en fabriquant aussi les ingrédients qui manquent
+ * (par exemple les BRICK, PLANKS et ROOF d'une HOUSE).
+ *
+ * L'arbre de fabrication est déplié à travers DB.recipeMap en parcourant les
+ * recettes dans l'ordre topologique inverse : quand on arrive à la recette d'un
+ * objet, toute la demande pour cet objet est connue. On prend d'abord ce que le
+ * joueur possède déjà, et on fabrique le reste.
+ *
+ * Les plans sont mémorisés par recette, la vue peut donc les redemander à
+ * chaque rafraîchissement. Chaque plan retient les objets dont il a lu la
+ * quantité : quand l'inventaire change, seuls les plans qui lisent un objet
+ * changé sont oubliés.
+ */
+public class CraftPlanner {
+    private final Inventory inventory; // L'inventaire à partir duquel on fabrique
+    private final IdentityHashMap<Recipe, Plan> plans = new IdentityHashMap<>(); // Plans mémorisés
+    private final long[] seen; // Quantités de l'inventaire vues par les plans mémorisés
+    private long seenVersion; // Version de l'inventaire de ces quantités
+    private final BitSet pending = new BitSet(); // Objets changés pas encore pris par takeChangedItems
+
+    /**
+     * Constructeur de la classe CraftPlanner.
+     *
+     * @param inventory L'inventaire à partir duquel on fabrique.
+     */
+    public CraftPlanner(Inventory inventory) {
+        this.inventory = inventory;
+        this.seen = inventory.getQuantities();
+        this.seenVersion = inventory.getVersion();
+    }
+
+    /**
+     * Oublie les plans qui lisent un objet dont la quantité a changé depuis le
+     * dernier appel, et ajoute ces objets aux changements pas encore pris.
+     */
+    private void refresh() {
+        if (inventory.getVersion() == seenVersion)
+            return;
+        seenVersion = inventory.getVersion();
+        BitSet changed = new BitSet();
+        long[] quantities = inventory.getQuantities();
+        for (int item = 0; item < quantities.length; item++) {
+            if (quantities[item] != seen[item]) {
+                changed.set(item);
+                seen[item] = quantities[item];
+            }
+        }
+        Iterator<Plan> memorized = plans.values().iterator();
+        while (memorized.hasNext()) {
+            if (memorized.next().reads.intersects(changed))
+                memorized.remove();
+        }
+        pending.or(changed);
+    }
+
+    /**
+     * Retourne les objets dont la quantité a changé depuis le dernier appel, et
+     * oublie ces changements. Les plans demandés entre deux appels ne les
+     * consomment pas.
+     *
+     * @return Les id des objets changés.
+     */
+    public BitSet takeChangedItems() {
+        refresh();
+        BitSet result = (BitSet) pending.clone();
+        pending.clear();
+        return result;
+    }
+
+    /**
+     * Retourne le plan pour fabriquer une fois la recette donnée, en le
+     * recalculant seulement si un objet qu'il lit a changé.
+     *
+     * @param target La recette à fabriquer.
+     * @return Le plan de fabrication.
+     */
+    public Plan plan(Recipe target) {
+        refresh();
+        Plan plan = plans.get(target);
+        if (plan == null) {
+            plan = new Plan(target, seen.clone());
+            plans.put(target, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * La classe Plan décrit une fabrication complète : les objets pris dans
+     * l'inventaire, les recettes à fabriquer et les objets fabriqués en trop.
+     */
+    public static class Plan {
+        private final Recipe target; // La recette demandée
+        private final long[] consumed; // Objets pris dans l'inventaire, par id
+        private final long[] missing; // Objets de base qui manquent, par id
+        private final long[] leftovers; // Objets intermédiaires fabriqués en trop, par id
+        private final int[] crafts; // Nombre de fabrications par index de recette
+        private final int subCrafts; // Nombre de fabrications intermédiaires
+        private final int time; // Durée totale en secondes
+        private final boolean feasible; // Vrai si rien ne manque
+        private final BitSet reads = new BitSet(); // Objets dont la quantité disponible a été lue
+
+        /**
+         * Calcule le plan de fabrication d'une recette.
+         *
+         * @param target    La recette à fabriquer une fois.
+         * @param available Les quantités disponibles, par id (modifié).
+         */
+        private Plan(Recipe target, long[] available) {
+            RecipeMap recipeMap = DB.recipeMap;
+            this.target = target;
+            this.consumed = new long[available.length];
+            this.missing = new long[available.length];
+            this.leftovers = new long[available.length];
+            this.crafts = new int[recipeMap.length()];
+            long[] demand = new long[available.length];
+
+            // la recette demandée est toujours fabriquée, même si le joueur a déjà l'objet
+            crafts[recipeMap.getIndexOf(target)] = 1;
+            for (Couple<Objet, Integer> ingredient : target.getIngredients()) {
+                demand[ingredient.getKey().getId()] += ingredient.getValue();
+            }
+
+            // les consommateurs d'un objet passent avant sa recette
+            List<Recipe> order = recipeMap.getTopologicalOrder();
+            for (int i = order.size() - 1; i >= 0; i--) {
+                Recipe recipe = order.get(i);
+                int item = recipe.getResult().getId();
+                // une seule recette par objet, celle de getByResult
+                if (recipe == target || demand[item] == 0 || recipeMap.getByResult(recipe.getResult()) != recipe)
+                    continue;
+                reads.set(item);
+                long fromStock = Math.min(demand[item], available[item]);
+                available[item] -= fromStock;
+                consumed[item] += fromStock;
+                long rest = demand[item] - fromStock;
+                demand[item] = 0;
+                if (rest > 0) {
+                    int times = (int) ((rest + recipe.getResultQuantity() - 1) / recipe.getResultQuantity());
+                    crafts[recipeMap.getIndexOf(recipe)] += times;
+                    leftovers[item] += (long) times * recipe.getResultQuantity() - rest;
+                    for (Couple<Objet, Integer> ingredient : recipe.getIngredients()) {
+                        demand[ingredient.getKey().getId()] += (long) ingredient.getValue() * times;
+                    }
+                }
+            }
+
+            // ce qui reste n'a pas de recette : il faut l'avoir
+            boolean complete = true;
+            for (int item = 0; item < demand.length; item++) {
+                if (demand[item] > 0)
+                    reads.set(item);
+                long fromStock = Math.min(demand[item], available[item]);
+                consumed[item] += fromStock;
+                missing[item] = demand[item] - fromStock;
+                if (missing[item] > 0)
+                    complete = false;
+            }
+            this.feasible = complete;
+
+            int count = 0;
+            int duration = 0;
+            for (int i = 0; i < crafts.length; i++) {
+                count += crafts[i];
+                duration += crafts[i] * recipeMap.get(i).getTime();
+            }
+            this.subCrafts = count - 1;
+            this.time = duration;
+        }
+
+        public Recipe getTarget() {
+            return target;
+        }
+
+        /**
+         * @return vrai si l'inventaire suffit pour toute la fabrication
+         */
+        public boolean isFeasible() {
+            return feasible;
+        }
+
+        /**
+         * @return le nombre de fabrications intermédiaires nécessaires avant la
+         *         recette demandée
+         */
+        public int getSubCrafts() {
+            return subCrafts;
+        }
+
+        /**
+         * @return la durée totale de la fabrication, en secondes
+         */
+        public int getTime() {
+            return time;
+        }
+
+        /**
+         * @return les objets à prendre dans l'inventaire, par id (à ne pas modifier)
+         */
+        public long[] getConsumed() {
+            return consumed;
+        }
+
+        /**
+         * @return les objets de base qui manquent, par id (à ne pas modifier)
+         */
+        public long[] getMissing() {
+            return missing;
+        }
+
+        /**
+         * @return les objets intermédiaires fabriqués en trop, rendus à la fin,
+         *         par id (à ne pas modifier)
+         */
+        public long[] getLeftovers() {
+            return leftovers;
+        }
+
+        /**
+         * Retourne le nombre de fois qu'une recette est fabriquée dans le plan.
+         *
+         * @param recipe La recette.
+         * @return Le nombre de fabrications.
+         */
+        public int getCraftsOf(Recipe recipe) {
+            return crafts[DB.recipeMap.getIndexOf(recipe)];
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package main.java.model.util;
+
+import java.util.BitSet;
+import main.java.model.Inventory;
+import main.java.model.Interface.QuantityListener;
+import main.java.model.storage.DB;
+
+/**
+ * La classe CraftabilityIndex sait à tout moment quelles recettes de
+ * DB.recipeMap peuvent être fabriquées avec un inventaire.
+ *
+ * Pour chaque recette on garde le nombre d'ingrédients (distincts) dont
+ * l'inventaire contient assez. L'index écoute les changements de quantité de
+ * l'inventaire : un changement sur un objet ne touche que les recettes qui
+ * l'utilisent, au lieu de revérifier toutes les recettes et tous leurs
+ * ingrédients. Les recettes dont l'état a changé sont notées pour que la vue ne
+ * redessine que leurs boutons.
+ */
+public class CraftabilityIndex implements QuantityListener {
+    private final int[] distinctIngredients; // Nombre d'ingrédients distincts par index de recette
+    private final int[] satisfied; // Nombre d'ingrédients disponibles en quantité suffisante
+    private final int[][] recipesByItem; // Par id d'objet, les index des recettes qui l'utilisent
+    private final long[][] neededByItem; // La quantité demandée par chacune de ces recettes
+    private final BitSet changed = new BitSet(); // Recettes dont l'état a changé depuis takeChanged
+
+    /**
+     * Constructeur de la classe CraftabilityIndex. L'index est rempli à partir du
+     * contenu actuel de l'inventaire puis s'enregistre comme son écouteur.
+     *
+     * @param inventory L'inventaire suivi.
+     */
+    public CraftabilityIndex(Inventory inventory) {
+        RecipeMap recipeMap = DB.recipeMap;
+        int recipes = recipeMap.length();
+        distinctIngredients = new int[recipes];
+        satisfied = new int[recipes];
+        recipesByItem = new int[DB.item.length][];
+        neededByItem = new long[DB.item.length][];
+
+        long[] quantities = inventory.getQuantities();
+        // premier passage : nombre de recettes par ingrédient ; un objet présent
+        // plusieurs fois dans une recette compte une fois avec le total
+        int[] counts = new int[DB.item.length];
+        for (int r = 0; r < recipes; r++) {
+            Couple<Objet, Integer>[] ingredients = recipeMap.get(r).getIngredients();
+            for (int i = 0; i < ingredients.length; i++) {
+                if (isFirstOf(ingredients, i) && totalOf(ingredients, i) > 0)
+                    counts[ingredients[i].getKey().getId()]++;
+            }
+        }
+        for (int id = 0; id < counts.length; id++) {
+            recipesByItem[id] = new int[counts[id]];
+            neededByItem[id] = new long[counts[id]];
+            counts[id] = 0;
+        }
+        // second passage : remplissage
+        for (int r = 0; r < recipes; r++) {
+            Couple<Objet, Integer>[] ingredients = recipeMap.get(r).getIngredients();
+            for (int i = 0; i < ingredients.length; i++) {
+                long needed = totalOf(ingredients, i);
+                if (!isFirstOf(ingredients, i) || needed <= 0)
+                    continue;
+                int id = ingredients[i].getKey().getId();
+                recipesByItem[id][counts[id]] = r;
+                neededByItem[id][counts[id]++] = needed;
+                distinctIngredients[r]++;
+                if (quantities[id] >= needed)
+                    satisfied[r]++;
+            }
+        }
+        changed.set(0, recipes); // au début tous les boutons sont à dessiner
+        inventory.setQuantityListener(this);
+    }
+
+    /**
+     * @return true si l'ingrédient i est la première apparition de son objet
+     *         dans la recette
+     */
+    private static boolean isFirstOf(Couple<Objet, Integer>[] ingredients, int i) {
+        for (int j = 0; j < i; j++) {
+            if (ingredients[j].getKey().getId() == ingredients[i].getKey().getId())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return la quantité totale demandée par la recette pour l'objet de
+     *         l'ingrédient i
+     */
+    private static long totalOf(Couple<Objet, Integer>[] ingredients, int i) {
+        long needed = 0;
+        for (Couple<Objet, Integer> other : ingredients) {
+            if (other.getKey().getId() == ingredients[i].getKey().getId())
+                needed += other.getValue();
+        }
+        return needed;
+    }
+
+    /**
+     * Met à jour les recettes qui utilisent l'objet dont la quantité a changé.
+     */
+    @Override
+    public void quantityChanged(int itemId, long oldQuantity, long newQuantity) {
+        int[] recipes = recipesByItem[itemId];
+        long[] needed = neededByItem[itemId];
+        for (int i = 0; i < recipes.length; i++) {
+            boolean before = oldQuantity >= needed[i];
+            boolean after = newQuantity >= needed[i];
+            if (before == after)
+                continue;
+            int r = recipes[i];
+            boolean wasCraftable = isCraftable(r);
+            satisfied[r] += after ? 1 : -1;
+            if (wasCraftable != isCraftable(r))
+                changed.set(r);
+        }
+    }
+
+    /**
+     * Indique si l'inventaire contient tous les ingrédients d'une recette.
+     *
+     * @param recipeIndex L'index de la recette dans DB.recipeMap.
+     * @return true si la recette peut être fabriquée.
+     */
+    public boolean isCraftable(int recipeIndex) {
+        return satisfied[recipeIndex] == distinctIngredients[recipeIndex];
+    }
+
+    /**
+     * Retourne les recettes dont l'état a changé depuis le dernier appel, et
+     * oublie ces changements.
+     *
+     * @return Les index des recettes changées.
+     */
+    public BitSet takeChanged() {
+        BitSet result = (BitSet) changed.clone();
+        changed.clear();
+        return result;
+    }
+}
@@ -20,8 +20,10 @@ public class InventoryViewCompactor {
     private final JLabel itemLabel; // Étiquette affichant le nom de l'objet
     private final JLabel myQuantityLabel; // Étiquette affichant la quantité de l'objet du joueur
     private final JLabel theirQuantityLabel; // Étiquette affichant la quantité de l'objet disponible
-    private final JButton put; // Bouton pour ajouter 1 objet à l'inventaire
-    private final JButton get; // Bouton pour retirer 1 objet de l'inventaire
+    private final JButton put; // Bouton pour ajouter N objets à l'inventaire
+    private final JButton get; // Bouton pour retirer N objets de l'inventaire
+    private final JButton putAll; // Bouton pour ajouter tous les objets de ce type
+    private final JButton getAll; // Bouton pour retirer tous les objets de ce type
     private final JPanel panel; // Panel contenant tous les composants d'affichage
 
     private final Objet item; // L'objet lié à cette ligne de l'inventaire
@@ -38,17 +40,21 @@ public class InventoryViewCompactor {
         this.itemLabel = new JLabel(item.toString());
         this.myQuantityLabel = new JLabel();
         this.theirQuantityLabel = new JLabel();
-        this.put = new JButton("put 1");
-        this.get = new JButton("get 1");
+        this.put = new JButton("put N");
+        this.get = new JButton("get N");
+        this.putAll = new JButton("put all");
+        this.getAll = new JButton("get all");
 
         // Initialisation du panel et mise en place de la disposition
         panel = new JPanel();
-        panel.setLayout(new GridLayout(1, 5)); // Une ligne, cinq colonnes
+        panel.setLayout(new GridLayout(1, 7)); // Une ligne, sept colonnes
         panel.add(itemLabel); // Affichage du nom de l'objet
         panel.add(theirQuantityLabel); // Affichage de la quantité de l'objet disponible
         panel.add(myQuantityLabel); // Affichage de la quantité de l'objet du joueur
         panel.add(put); // Bouton pour ajouter un objet
         panel.add(get); // Bouton pour retirer un objet
+        panel.add(putAll); // Bouton pour ajouter tous les objets
+        panel.add(getAll); // Bouton pour retirer tous les objets
 
         // Configuration de la taille du panel
         panel.setSize(new Dimension(panel.getWidth(), 75));
@@ -75,6 +81,24 @@ public class InventoryViewCompactor {
         return this.put;
     }
 
+    /**
+     * Retourne le bouton permettant d'ajouter tous les objets de ce type.
+     *
+     * @return Le bouton "put all".
+     */
+    public JButton getPutAll() {
+        return this.putAll;
+    }
+
+    /**
+     * Retourne le bouton permettant de retirer tous les objets de ce type.
+     *
+     * @return Le bouton "get all".
+     */
+    public JButton getGetAll() {
+        return this.getAll;
+    }
+
     /**
      * Retourne l'étiquette affichant la quantité d'objet du joueur.
      *
@@ -1,7 +1,5 @@
 package main.java.model.util;
 
-import main.java.model.Enum.Item;
-
 /**
  * La classe Objet représente un objet dans le jeu, incluant ses propriétés
  * telles que le nom, l'ID, le prix d'achat et de vente, la durée de récolte,
@@ -10,7 +8,7 @@ import main.java.model.Enum.Item;
  */
 public class Objet implements Cloneable {
 
-    private final Item name; // Le nom de l'objet (correspond à un élément de l'énumération Item)
+    private final String name; // Le nom de l'objet (tel qu'écrit dans le catalogue)
     private final int sell; // Le prix de vente de l'objet
     private final int buy; // Le prix d'achat de l'objet
     private final int id; // L'ID unique de l'objet
@@ -24,16 +22,16 @@ public class Objet implements Cloneable {
      * et de vente).
      * Utilisé pour les objets sans durée de récolte ou récupération.
      *
-     * @param name Le nom de l'objet (correspond à un élément de l'énumération
-     *             Item).
+     * @param id   L'ID de l'objet (son rang dans le catalogue).
+     * @param name Le nom de l'objet.
      * @param buy  Le prix d'achat de l'objet.
      * @param sell Le prix de vente de l'objet.
      */
-    public Objet(Item name, int buy, int sell) {
+    public Objet(int id, String name, int buy, int sell) {
         this.name = name;
         this.sell = sell;
         this.buy = buy;
-        this.id = name.ordinal();
+        this.id = id;
         this.duration = 0;
         this.recovery = 0;
         this.quantity = 0;
@@ -44,6 +42,7 @@ public class Objet implements Cloneable {
      * et la récupération. En particulier ce contructeur créer des objet qui sont
      * recoltables sur la carte
      *
+     * @param id       L'ID de l'objet (son rang dans le catalogue).
      * @param name     Le nom de l'objet.
      * @param buy      Le prix d'achat de l'objet.
      * @param sell     Le prix de vente de l'objet.
@@ -51,9 +50,9 @@ public class Objet implements Cloneable {
      * @param recovery Le temps de récupération de l'objet.
      * @param quantity La quantité d'objet disponible.
      */
-    public Objet(Item name, int buy, int sell, int duration, int recovery, int quantity) {
+    public Objet(int id, String name, int buy, int sell, int duration, int recovery, int quantity) {
         this.name = name;
-        this.id = name.ordinal();
+        this.id = id;
         this.buy = buy;
         this.sell = sell;
         this.duration = duration;
@@ -67,7 +66,7 @@ public class Objet implements Cloneable {
      * @return Le nom de l'objet.
      */
     public String getName() {
-        return this.name.toString();
+        return this.name;
     }
 
     /**
@@ -147,12 +146,12 @@ public class Objet implements Cloneable {
      */
     @Override
     public String toString() {
-        return name.toString();
+        return name;
     }
 
     /**
      * Vérifie si l'objet courant est égal à un autre objet.
-     * L'égalité est basée sur le nom de l'objet.
+     * L'égalité est basée sur l'ID de l'objet.
      *
      * @param obj L'objet à comparer.
      * @return true si les objets sont égaux, sinon false.
@@ -163,6 +162,16 @@ public class Objet implements Cloneable {
             return false;
         if (this == obj)
             return true;
-        return this.name == ((Objet) obj).name;
+        return this.id == ((Objet) obj).id;
+    }
+
+    /**
+     * Retourne le code de hachage de l'objet, cohérent avec equals.
+     *
+     * @return L'ID de l'objet.
+     */
+    @Override
+    public int hashCode() {
+        return id;
     }
 }
@@ -5,6 +5,7 @@ import java.util.LinkedList;
 import java.util.Queue;
 import main.java.controller.Timeline;
 import main.java.model.Map;
+import main.java.model.World;
 import main.java.model.storage.Value;
 
 /**
@@ -12,6 +13,10 @@ import main.java.model.storage.Value;
  * à travers la carte.
  * Elle utilise un algorithme de recherche en largeur (BFS) pour trouver un
  * chemin vers une destination.
+ *
+ * La recherche se limite au rectangle qui contient le départ et l'arrivée,
+ * agrandi d'un chunk de chaque côté : sur une grande carte elle ne génère ni
+ * ne parcourt les chunks lointains.
  */
 public class PathFinder {
 
@@ -41,14 +46,22 @@ public class PathFinder {
      */
     private static PositionWithParent findPath(int targetRow, int targetCol, int startRow, int startCol) {
 
-        boolean[][] visited = new boolean[gameMap.getRows()][gameMap.getCols()]; // Tableau des cases déjà visitées
+        // Zone de recherche : le rectangle du trajet agrandi d'un chunk
+        int minRow = Math.max(0, Math.min(targetRow, startRow) - World.CHUNK_SIZE);
+        int minCol = Math.max(0, Math.min(targetCol, startCol) - World.CHUNK_SIZE);
+        int maxRow = Math.min(gameMap.getRows() - 1, Math.max(targetRow, startRow) + World.CHUNK_SIZE);
+        int maxCol = Math.min(gameMap.getCols() - 1, Math.max(targetCol, startCol) + World.CHUNK_SIZE);
+        // Tableau des cases déjà visitées dans la zone
+        boolean[][] visited = new boolean[maxRow - minRow + 1][maxCol - minCol + 1];
         Queue<PositionWithParent> queue = new LinkedList<>(); // File d'attente pour l'algorithme BFS
 
         // Ajout de la position de départ (destination)
         queue.add(new PositionWithParent(targetRow, targetCol, null));
-        visited[targetRow][targetCol] = true;
+        visited[targetRow - minRow][targetCol - minCol] = true;
 
-        // Déplacements possibles (haut, bas, gauche, droite)
+        // Déplacements possibles (haut, bas, gauche, droite), dans l'ordre des bits
+        // de World.getWalkableNeighbours
+        World world = gameMap.getWorld();
         int[] rowOffsets = { -1, 1, 0, 0 };
         int[] colOffsets = { 0, 0, -1, 1 };
 
@@ -61,15 +74,19 @@ public class PathFinder {
                 return current;
             }
 
-            // Exploration des voisins (haut, bas, gauche, droite)
+            // Exploration des voisins praticables, lus d'un coup dans les mots de bits
+            int neighbours = world.getWalkableNeighbours(current.getRow(), current.getCol());
             for (int i = 0; i < 4; i++) {
+                if ((neighbours & (1 << i)) == 0)
+                    continue;
                 int newRow = current.getRow() + rowOffsets[i];
                 int newCol = current.getCol() + colOffsets[i];
 
-                // Si la case est valide et non visitée, on l'ajoute à la file d'attente
-                if (gameMap.isAvailable(newRow, newCol) && !visited[newRow][newCol]) {
+                // Si la case est dans la zone et non visitée, on l'ajoute à la file d'attente
+                if (newRow >= minRow && newCol >= minCol && newRow <= maxRow && newCol <= maxCol
+                        && !visited[newRow - minRow][newCol - minCol]) {
                     queue.add(new PositionWithParent(newRow, newCol, current));
-                    visited[newRow][newCol] = true;
+                    visited[newRow - minRow][newCol - minCol] = true;
                 }
             }
         }
@@ -131,79 +148,6 @@ public class PathFinder {
         return path;
     }
 
-   /**
- * Vérifie si une position donnée est atteignable à partir de la position de départ.
- * 
- * Cette méthode vérifie si une cellule spécifique (donnée par les paramètres `row` et `col`)
- * peut être atteinte en partant de la position de départ définie par `gameMap.getSpawn()`.
- * L'atteignabilité est vérifiée à travers une recherche récursive des cases voisines.
- *
- * @param row La ligne de la position cible.
- * @param col La colonne de la position cible.
- * @return true si la position est atteignable, false sinon.
- * @throws AssertionError Si le tableau représentant la carte est vide.
- */
-public static boolean reachable(int row, int col) {
-    assert gameMap.getRepresentativeMap().length != 0;
-    Position pos = gameMap.getSpawn();
-    boolean[][] grid = new boolean[gameMap.getRepresentativeMap().length][gameMap.getRepresentativeMap()[0].length];
-    return reachableBis(pos.getRow(), pos.getCol(), row, col, grid);
-}
-
-    /**
-     * Fonction récursive qui vérifie si une position est atteignable à partir d'une position de départ.
-     * 
-     * Cette méthode utilise la récursion pour explorer les cases voisines et déterminer si la position cible
-     * peut être atteinte. Elle vérifie les cases dans les quatre directions (haut, bas, gauche, droite) à chaque
-     * étape de la recherche.
-     *
-     * @param rowa La ligne de la position actuelle.
-     * @param cola La colonne de la position actuelle.
-     * @param rowx La ligne de la position cible.
-     * @param colx La colonne de la position cible.
-     * @param grid Le tableau de cases déjà explorées, pour éviter les boucles infinies.
-     * @return true si la position cible est atteignable, false sinon.
-     */
-    private static boolean reachableBis(int rowa, int cola, int rowx, int colx, boolean[][] grid) {
-        int[][] DIRECTIONS = { { 0, 1 }, { 1, 0 }, { 0, -1 }, { -1, 0 } };
-
-        // Condition d'arrêt : vérifie si la position actuelle est adjacent à la position cible
-        if ((Math.abs(rowa - rowx) <= 1 && cola == colx) || (Math.abs(cola - colx) <= 1 && rowa == rowx)) {
-            return true;
-        }
-
-        grid[rowa][cola] = true; // Marque la position actuelle comme explorée
-
-        // Explore les cases voisines dans les quatre directions possibles
-        for (int[] direction : DIRECTIONS) {
-            int newRowa = rowa + direction[0];
-            int newCola = cola + direction[1];
-            if (isValid(grid, newRowa, newCola)) {
-                if (reachableBis(newRowa, newCola, rowx, colx, grid)) {
-                    return true; // Si une direction mène à la cible, retourne true
-                }
-            }
-        }
-        return false; // Retourne false si aucune direction ne mène à la cible
-    }
-
-    /**
-     * Vérifie si une position donnée est valide.
-     * 
-     * Cette méthode détermine si une position (ligne, colonne) est à l'intérieur des limites de la carte
-     * et si la case correspondante est libre (non occupée) et non déjà explorée.
-     *
-     * @param grid Le tableau des positions explorées.
-     * @param row La ligne de la position à vérifier.
-     * @param col La colonne de la position à vérifier.
-     * @return true si la position est valide (dans les limites, libre et non explorée), false sinon.
-     */
-    private static boolean isValid(boolean[][] grid, int row, int col) {
-        return gameMap.isInBound(row, col) && 
-            gameMap.getRepresentativeMap()[row][col] == null && 
-            !grid[row][col]; // La case est dans les limites, libre et non explorée
-    }
-
     /**
      * Classe interne représentant une position sur la carte avec une référence à
      * son parent.
@@ -0,0 +1,325 @@
+package main.java.model.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import main.java.model.Factory;
+import main.java.model.Harvester;
+import main.java.model.Machine;
+import main.java.model.storage.DB;
+
+/**
+ * La classe ProductionAnalyzer calcule le régime permanent d'une base : pour
+ * chaque objet, combien en sont produits et consommés par seconde, et quelle
+ * machine limite chaque chaîne de production.
+ *
+ * Chaque machine ajoutée apporte un débit nominal : un récolteur produit
+ * l'objet de sa ressource, une usine fait tourner sa recette. Une usine qui
+ * choisit sa recette dans une liste partage son temps à parts égales entre
+ * les recettes de la liste : son débit ne dépend donc pas de la recette
+ * qu'elle fait à l'instant, et l'analyse n'a pas à suivre chaque changement
+ * fait pendant la simulation. Ces débits sont
+ * additionnés par recette et par objet, donc ajouter, retirer ou reconfigurer
+ * une machine (recette, ressource ou bonus de vitesse) ne coûte qu'une mise à
+ * jour. Le calcul parcourt ensuite les
+ * recettes dans l'ordre topologique : quand un ingrédient est produit moins
+ * vite qu'il n'est demandé, il est partagé au prorata entre ses consommateurs
+ * qui tournent alors moins vite.
+ *
+ * Les pannes et l'usure ne sont pas comptées (on suppose les machines
+ * réparées), et les objets apportés par le joueur non plus. La classe ne
+ * dépend que des modèles : on peut l'utiliser sans interface pour comparer des
+ * dispositions.
+ */
+public class ProductionAnalyzer {
+    private final IdentityHashMap<Machine, Contribution> contributions = new IdentityHashMap<>();
+    private final double[] recipeRate = new double[DB.recipeMap.length()]; // cycles par seconde, par recette
+    private final double[] harvestRate = new double[DB.item.length]; // objets récoltés par seconde, par id
+
+    // --- Résultat du dernier calcul ---
+    private boolean solved = false;
+    private final double[] produced = new double[DB.item.length]; // objets produits par seconde, par id
+    private final double[] consumed = new double[DB.item.length]; // objets consommés par seconde, par id
+    private final double[] utilization = new double[DB.recipeMap.length()]; // fraction du débit nominal
+    private final int[] limitingItem = new int[DB.recipeMap.length()]; // ingrédient qui ralentit, -1 si aucun
+
+    /**
+     * Crée un analyseur pour les machines données.
+     *
+     * @param machines Les machines de la base.
+     */
+    public ProductionAnalyzer(Iterable<? extends Machine> machines) {
+        for (Machine machine : machines) {
+            update(machine);
+        }
+    }
+
+    /**
+     * Crée un analyseur sans machine.
+     */
+    public ProductionAnalyzer() {
+    }
+
+    /**
+     * Ajoute une machine, ou la prend en compte à nouveau après un changement de
+     * recette, de ressource ou de bonus.
+     *
+     * @param machine La machine.
+     */
+    public void update(Machine machine) {
+        remove(machine);
+        Contribution contribution = new Contribution(machine);
+        if (contribution.rates.length == 0)
+            return;
+        contributions.put(machine, contribution);
+        apply(contribution, 1);
+    }
+
+    /**
+     * Retire une machine de l'analyse.
+     *
+     * @param machine La machine.
+     */
+    public void remove(Machine machine) {
+        Contribution old = contributions.remove(machine);
+        if (old != null)
+            apply(old, -1);
+    }
+
+    /**
+     * Ajoute (sign = 1) ou retire (sign = -1) le débit d'une machine des totaux.
+     */
+    private void apply(Contribution contribution, int sign) {
+        if (contribution.recipes != null) {
+            for (int i = 0; i < contribution.recipes.length; i++) {
+                int recipe = contribution.recipes[i];
+                recipeRate[recipe] += sign * contribution.rates[i];
+                if (sign < 0 && recipeRate[recipe] < 1e-12)
+                    recipeRate[recipe] = 0; // pas de reste d'arrondi
+            }
+        } else {
+            harvestRate[contribution.item] += sign * contribution.rates[0];
+            if (sign < 0 && harvestRate[contribution.item] < 1e-12)
+                harvestRate[contribution.item] = 0;
+        }
+        solved = false;
+    }
+
+    /**
+     * Calcule le régime permanent si une machine a changé depuis le dernier
+     * calcul. Le coût ne dépend que du nombre de recettes et d'objets.
+     */
+    private void solve() {
+        if (solved)
+            return;
+        RecipeMap recipeMap = DB.recipeMap;
+        System.arraycopy(harvestRate, 0, produced, 0, produced.length);
+        Arrays.fill(consumed, 0);
+
+        // demande nominale de chaque objet
+        double[] demand = new double[produced.length];
+        for (int r = 0; r < recipeRate.length; r++) {
+            if (recipeRate[r] == 0)
+                continue;
+            for (Couple<Objet, Integer> ingredient : recipeMap.get(r).getIngredients()) {
+                demand[ingredient.getKey().getId()] += recipeRate[r] * ingredient.getValue();
+            }
+        }
+
+        // les producteurs d'un objet passent avant ses consommateurs
+        List<Recipe> order = recipeMap.getTopologicalOrder();
+        for (Recipe recipe : order) {
+            int r = recipeMap.getIndexOf(recipe);
+            utilization[r] = 0;
+            limitingItem[r] = -1;
+            if (recipeRate[r] == 0)
+                continue;
+            double u = 1;
+            for (Couple<Objet, Integer> ingredient : recipe.getIngredients()) {
+                int id = ingredient.getKey().getId();
+                double supply = demand[id] == 0 ? 1 : Math.min(1, produced[id] / demand[id]);
+                if (supply < u) {
+                    u = supply;
+                    limitingItem[r] = id;
+                }
+            }
+            utilization[r] = u;
+            produced[recipe.getResult().getId()] += recipeRate[r] * u * recipe.getResultQuantity();
+        }
+
+        for (int r = 0; r < recipeRate.length; r++) {
+            if (recipeRate[r] == 0)
+                continue;
+            for (Couple<Objet, Integer> ingredient : recipeMap.get(r).getIngredients()) {
+                consumed[ingredient.getKey().getId()] += recipeRate[r] * utilization[r] * ingredient.getValue();
+            }
+        }
+        solved = true;
+    }
+
+    /**
+     * @return le nombre d'objets produits par seconde
+     */
+    public double getProductionRate(Objet item) {
+        solve();
+        return produced[item.getId()];
+    }
+
+    /**
+     * @return le nombre d'objets consommés par seconde par les usines
+     */
+    public double getConsumptionRate(Objet item) {
+        solve();
+        return consumed[item.getId()];
+    }
+
+    /**
+     * @return la production moins la consommation, par seconde (un surplus
+     *         s'accumule dans les inventaires)
+     */
+    public double getNetRate(Objet item) {
+        solve();
+        return produced[item.getId()] - consumed[item.getId()];
+    }
+
+    /**
+     * Retourne la fraction de leur débit nominal à laquelle tournent les usines
+     * d'une recette, faute d'ingrédients.
+     *
+     * @param recipe La recette.
+     * @return Une valeur entre 0 et 1 (0 si aucune usine ne la fait).
+     */
+    public double getUtilization(Recipe recipe) {
+        solve();
+        return utilization[DB.recipeMap.getIndexOf(recipe)];
+    }
+
+    /**
+     * Retourne l'ingrédient qui ralentit les usines d'une recette.
+     *
+     * @param recipe La recette.
+     * @return L'ingrédient, ou null si elles tournent à plein régime.
+     */
+    public Objet getLimitingItem(Recipe recipe) {
+        solve();
+        int id = limitingItem[DB.recipeMap.getIndexOf(recipe)];
+        return id < 0 ? null : DB.item[id];
+    }
+
+    /**
+     * Retourne la machine qui limite la chaîne produisant un objet : on remonte
+     * les ingrédients qui ralentissent, jusqu'à une étape qui tourne à plein
+     * régime, et on retourne sa machine la plus lente.
+     *
+     * @param product L'objet au bout de la chaîne.
+     * @return La machine, ou null si l'objet manquant n'est produit par aucune
+     *         machine (il doit être apporté par le joueur).
+     */
+    public Machine getBottleneck(Objet product) {
+        solve();
+        boolean[] visited = new boolean[DB.item.length];
+        int item = product.getId();
+        while (!visited[item]) {
+            visited[item] = true;
+            // l'étape qui produit l'objet le plus lentement
+            int next = -1;
+            double worst = 1;
+            for (Recipe recipe : DB.recipeMap.getAllByResult(DB.item[item])) {
+                int r = DB.recipeMap.getIndexOf(recipe);
+                if (recipeRate[r] > 0 && utilization[r] < worst) {
+                    worst = utilization[r];
+                    next = limitingItem[r];
+                }
+            }
+            if (next < 0)
+                return slowestProducerOf(item);
+            item = next;
+        }
+        return slowestProducerOf(item); // cycle de recettes
+    }
+
+    /**
+     * @return la machine qui produit le moins d'un objet par seconde, ou null
+     */
+    private Machine slowestProducerOf(int item) {
+        Machine slowest = null;
+        double slowestRate = Double.MAX_VALUE;
+        for (Map.Entry<Machine, Contribution> entry : contributions.entrySet()) {
+            Contribution c = entry.getValue();
+            double rate = 0;
+            if (c.recipes != null) {
+                for (int i = 0; i < c.recipes.length; i++) {
+                    Recipe recipe = DB.recipeMap.get(c.recipes[i]);
+                    if (recipe.getResult().getId() == item)
+                        rate += c.rates[i] * recipe.getResultQuantity();
+                }
+            } else if (c.item == item) {
+                rate = c.rates[0];
+            }
+            if (rate > 0 && rate < slowestRate) {
+                slowestRate = rate;
+                slowest = entry.getKey();
+            }
+        }
+        return slowest;
+    }
+
+    /**
+     * @return le nombre de machines prises en compte
+     */
+    public int size() {
+        return contributions.size();
+    }
+
+    /**
+     * Retourne le bilan de chaque objet produit ou consommé.
+     *
+     * @return Une ligne par objet : production, consommation et solde par seconde.
+     */
+    @Override
+    public String toString() {
+        solve();
+        StringBuilder result = new StringBuilder();
+        for (int id = 0; id < produced.length; id++) {
+            if (produced[id] == 0 && consumed[id] == 0)
+                continue;
+            result.append(String.format("%-12s +%.3f/s  -%.3f/s  = %+.3f/s%n", DB.item[id], produced[id],
+                    consumed[id], produced[id] - consumed[id]));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Le débit nominal d'une machine : des cycles par seconde de chaque recette
+     * pour une usine, des objets récoltés par seconde pour un récolteur.
+     */
+    private static final class Contribution {
+        private int[] recipes; // index des recettes, pour une usine
+        private int item = -1; // id de l'objet récolté, pour un récolteur
+        private double[] rates = new double[0]; // débit par recette, ou débit de récolte
+
+        Contribution(Machine machine) {
+            if (machine instanceof Factory) {
+                Factory factory = (Factory) machine;
+                List<Recipe> list = factory.isMultiRecipe() ? factory.getRecipeList()
+                        : factory.getRecipe() == null ? Collections.<Recipe>emptyList()
+                                : Collections.singletonList(factory.getRecipe());
+                recipes = new int[list.size()];
+                rates = new double[list.size()];
+                for (int i = 0; i < recipes.length; i++) {
+                    recipes[i] = DB.recipeMap.getIndexOf(list.get(i));
+                    // le temps de l'usine est partagé entre les recettes de la liste
+                    rates[i] = 1 / (recipes.length * factory.getEffectiveCycleTime(list.get(i)));
+                }
+            } else if (machine instanceof Harvester) {
+                Objet harvested = DB.itemOf(((Harvester) machine).getResource());
+                if (harvested != null) {
+                    item = harvested.getId();
+                    rates = new double[] { harvested.getQuantity() / machine.getEffectiveCycleTime() };
+                }
+            }
+        }
+    }
+}
@@ -1,25 +1,154 @@
 package main.java.model.util;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
 /**
  * La classe RecipeMap permet de stocker une collection de recettes et d'offrir
  * des méthodes pour y accéder,
  * obtenir la longueur du tableau de recettes, récupérer des recettes par index,
  * par référence d'objet ou par résultat.
+ *
+ * Les index sont construits une seule fois à la création : recette vers index,
+ * objet vers les recettes qui le produisent, objet vers les recettes qui le
+ * consomment, objet vers les recettes dont l'arbre d'ingrédients le contient, et
+ * un ordre topologique du graphe des recettes (les recettes d'un ingrédient
+ * passent avant celles qui l'utilisent). Toutes les recherches sont alors en
+ * temps constant.
  */
 public class RecipeMap {
 
     // Tableau qui contient toutes les recettes de la map
     private final Recipe[] recipes;
 
+    // --- Index ---
+    private final IdentityHashMap<Recipe, Integer> indexOf; // recette -> index (par référence)
+    private final List<List<Recipe>> byResult; // id d'objet -> recettes qui le produisent
+    private final List<List<Recipe>> byIngredient; // id d'objet -> recettes qui le consomment
+    private final List<Recipe> topologicalOrder; // ingrédients avant les recettes qui les utilisent
+    private final BitSet[] dependents; // id d'objet -> index des recettes dont l'arbre le contient
+
     /**
      * Constructeur de la classe RecipeMap.
      * Ce constructeur permet d'initialiser la map de recettes avec un ensemble de
      * recettes.
      *
-     * @param recipes Une série de recettes à ajouter à la map.
+     * @param itemTypes Le nombre d'objets du jeu (les ids vont de 0 à
+     *                  itemTypes - 1).
+     * @param recipes   Une série de recettes à ajouter à la map.
      */
-    public RecipeMap(Recipe... recipes) {
+    public RecipeMap(int itemTypes, Recipe... recipes) {
         this.recipes = recipes;
+
+        this.indexOf = new IdentityHashMap<>(recipes.length * 2);
+        List<List<Recipe>> results = new ArrayList<>(itemTypes);
+        List<List<Recipe>> ingredients = new ArrayList<>(itemTypes);
+        for (int i = 0; i < itemTypes; i++) {
+            results.add(new ArrayList<>());
+            ingredients.add(new ArrayList<>());
+        }
+        for (int i = 0; i < recipes.length; i++) {
+            indexOf.putIfAbsent(recipes[i], i);
+            results.get(recipes[i].getResult().getId()).add(recipes[i]);
+            for (Couple<Objet, Integer> couple : recipes[i].getIngredients()) {
+                List<Recipe> consumers = ingredients.get(couple.getKey().getId());
+                if (consumers.isEmpty() || consumers.get(consumers.size() - 1) != recipes[i])
+                    consumers.add(recipes[i]);
+            }
+        }
+        this.byResult = freeze(results);
+        this.byIngredient = freeze(ingredients);
+        this.topologicalOrder = Collections.unmodifiableList(sortTopologically());
+        this.dependents = new BitSet[itemTypes];
+        for (int i = 0; i < itemTypes; i++) {
+            dependents[i] = new BitSet(recipes.length);
+        }
+        for (int i = 0; i < recipes.length; i++) {
+            addToClosure(i);
+        }
+    }
+
+    /**
+     * Ajoute une recette aux dépendants de tous les objets de son arbre
+     * d'ingrédients, en dépliant chaque ingrédient par sa recette (celle de
+     * getByResult, comme le CraftPlanner).
+     *
+     * @param index L'index de la recette.
+     */
+    private void addToClosure(int index) {
+        ArrayDeque<Objet> pending = new ArrayDeque<>();
+        for (Couple<Objet, Integer> couple : recipes[index].getIngredients()) {
+            pending.add(couple.getKey());
+        }
+        while (!pending.isEmpty()) {
+            Objet item = pending.poll();
+            if (dependents[item.getId()].get(index))
+                continue; // déjà vu (ou cycle de recettes)
+            dependents[item.getId()].set(index);
+            Recipe recipe = getByResult(item);
+            if (recipe == null)
+                continue;
+            for (Couple<Objet, Integer> couple : recipe.getIngredients()) {
+                pending.add(couple.getKey());
+            }
+        }
+    }
+
+    /**
+     * Rend une liste de listes non modifiable.
+     */
+    private static List<List<Recipe>> freeze(List<List<Recipe>> lists) {
+        List<List<Recipe>> frozen = new ArrayList<>(lists.size());
+        for (List<Recipe> list : lists) {
+            frozen.add(Collections.unmodifiableList(list));
+        }
+        return Collections.unmodifiableList(frozen);
+    }
+
+    /**
+     * Trie les recettes pour que toute recette produisant un ingrédient passe
+     * avant les recettes qui le consomment (algorithme de Kahn). Les recettes
+     * prises dans un cycle sont ajoutées à la fin, dans l'ordre de la map.
+     *
+     * @return Les recettes dans l'ordre topologique.
+     */
+    private List<Recipe> sortTopologically() {
+        // nombre de recettes productrices de ses ingrédients pour chaque recette
+        int[] pending = new int[recipes.length];
+        for (int i = 0; i < recipes.length; i++) {
+            for (Couple<Objet, Integer> couple : recipes[i].getIngredients()) {
+                pending[i] += byResult.get(couple.getKey().getId()).size();
+            }
+        }
+        ArrayDeque<Integer> ready = new ArrayDeque<>();
+        for (int i = 0; i < recipes.length; i++) {
+            if (pending[i] == 0)
+                ready.add(i);
+        }
+        List<Recipe> order = new ArrayList<>(recipes.length);
+        boolean[] placed = new boolean[recipes.length];
+        while (!ready.isEmpty()) {
+            int i = ready.poll();
+            order.add(recipes[i]);
+            placed[i] = true;
+            for (Recipe consumer : byIngredient.get(recipes[i].getResult().getId())) {
+                int j = getIndexOf(consumer);
+                // une fois par ingrédient du consommateur produit par cette recette
+                for (Couple<Objet, Integer> couple : consumer.getIngredients()) {
+                    if (couple.getKey().getId() == recipes[i].getResult().getId() && --pending[j] == 0)
+                        ready.add(j);
+                }
+            }
+        }
+        for (int i = 0; i < recipes.length; i++) {
+            if (!placed[i])
+                order.add(recipes[i]);
+        }
+        return order;
     }
 
     /**
@@ -56,12 +185,8 @@ public class RecipeMap {
      * @return L'index de la recette, ou -1 si la recette n'existe pas dans la map.
      */
     public int getIndexOf(Recipe recipe) {
-        for (int i = 0; i < recipes.length; i++) {
-            if (recipes[i] == recipe) {
-                return i; // Retourne l'index de la recette
-            }
-        }
-        return -1; // La recette n'a pas été trouvée
+        Integer index = indexOf.get(recipe);
+        return index == null ? -1 : index; // -1 si la recette n'a pas été trouvée
     }
 
     /**
@@ -73,12 +198,50 @@ public class RecipeMap {
      *         recette ne correspond.
      */
     public Recipe getByResult(Objet result) {
-        for (int i = 0; i < recipes.length; i++) {
-            if (recipes[i].getResult() == result) {
-                return recipes[i]; // Retourne la recette correspondante
-            }
-        }
-        return null; // Aucun résultat trouvé
+        List<Recipe> found = getAllByResult(result);
+        return found.isEmpty() ? null : found.get(0); // null si aucun résultat trouvé
+    }
+
+    /**
+     * Retourne toutes les recettes qui produisent l'objet donné.
+     *
+     * @param result L'objet produit.
+     * @return Les recettes, dans l'ordre de la map (liste non modifiable).
+     */
+    public List<Recipe> getAllByResult(Objet result) {
+        return byResult.get(result.getId());
+    }
+
+    /**
+     * Retourne toutes les recettes qui utilisent l'objet donné comme ingrédient.
+     *
+     * @param ingredient L'ingrédient.
+     * @return Les recettes, dans l'ordre de la map (liste non modifiable).
+     */
+    public List<Recipe> getConsumersOf(Objet ingredient) {
+        return byIngredient.get(ingredient.getId());
+    }
+
+    /**
+     * Retourne les recettes dont l'arbre d'ingrédients contient l'objet donné :
+     * celles dont le plan de fabrication peut changer avec sa quantité.
+     *
+     * @param item L'objet.
+     * @return Les index des recettes (à ne pas modifier).
+     */
+    public BitSet getDependentsOf(Objet item) {
+        return dependents[item.getId()];
+    }
+
+    /**
+     * Retourne les recettes dans l'ordre topologique : une recette qui produit
+     * un ingrédient passe toujours avant les recettes qui l'utilisent (par
+     * exemple STEEL -> INGOT -> STEELBLOCK).
+     *
+     * @return Les recettes triées (liste non modifiable).
+     */
+    public List<Recipe> getTopologicalOrder() {
+        return topologicalOrder;
     }
 
     /**
@@ -4,16 +4,17 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import main.java.controller.MachineAggregate;
 import main.java.controller.MachineController;
-import main.java.controller.MarketController;
+import main.java.controller.Timeline;
 import main.java.model.Exception.InvalidSaveFormat;
 import main.java.model.Factory;
 import main.java.model.Harvester;
-import main.java.model.Interface.Clickable;
 import main.java.model.Interface.Savable;
 import main.java.model.Machine;
 import main.java.model.Map;
-import main.java.model.Resources;
 
 /**
  * La classe Save gère l'enregistrement et la restauration de l'état du jeu dans
@@ -35,6 +36,9 @@ public class Save {
     public static void save(Map map) {
         try (// Création d'un FileWriter pour écrire dans le fichier
         FileWriter writer = new FileWriter(saveFilePath);){
+            // Les machines regroupées reçoivent d'abord leurs cycles en retard
+            MachineAggregate.syncAll();
+
             // Sauvegarde de la carte
             writer.write(map.save() + "\n");
 
@@ -58,16 +62,15 @@ public class Save {
             StringBuilder factorySave = new StringBuilder();
             StringBuilder harvesterSave = new StringBuilder();
 
-            // Parcours de la carte cliquable et enregistrement des machines
-            map.getClickableMap().forEach((Position position, Clickable clickable) -> {
-                // Ne pas sauvegarder les MarketController ou Resources
-                if (clickable instanceof MarketController || clickable instanceof Resources)
-                    return;
-                
+            // Parcours de la liste des machines et enregistrement
+            List<MachineController> machines = map.getMachines();
+            List<Position> positions = map.getMachinePositions();
+            for (int i = 0; i < machines.size(); i++) {
+                Position position = positions.get(i);
                 String saveData = "";
                 
-                // Cast du Clickable en MachineController pour récupérer la machine associée
-                Machine machine = ((MachineController) clickable).getModel();
+                // Récupère la machine associée au contrôleur
+                Machine machine = machines.get(i).getModel();
                 
                 // Ajout de la position de la machine dans la sauvegarde
                 saveData += position.getRow() + ":" + position.getCol() + ",";
@@ -81,7 +84,7 @@ public class Save {
                 } else if (machine instanceof Harvester) {
                     harvesterSave.append(saveData).append(";");
                 }
-            });
+            }
 
             // Ajout d'un espace pour séparer les usines et les moissonneuses
             factorySave.append(" ");
@@ -90,6 +93,16 @@ public class Save {
             // Écriture des données des usines et moissonneuses dans le fichier
             writer.write(factorySave + "\n" + harvesterSave);
 
+            // Date de la sauvegarde pour rattraper la production hors du jeu
+            writer.write("\n" + System.currentTimeMillis());
+
+            // Crafts du joueur pas encore terminés, repris au chargement
+            StringBuilder craftSave = new StringBuilder();
+            for (CraftOrder order : Timeline.getCraftOrders()) {
+                craftSave.append(order.save()).append(";");
+            }
+            writer.write("\n" + craftSave);
+
             // Fermeture du fichier après l'écriture
             writer.close();
         } catch (IOException e) {
@@ -140,18 +153,39 @@ public class Save {
             String inventorySave = reader.readLine();
             map.getPlayer().restore(walletSave + ";" + inventorySave);
 
-            // Restauration des usines
             String[] factoryData = reader.readLine().split(";");
+            String[] harvesterData = reader.readLine().split(";");
+
+            // Temps passé hors du jeu (absent des anciennes sauvegardes)
+            Duration elapsed = Duration.ZERO;
+            String savedAt = reader.readLine();
+            if (savedAt != null && !savedAt.trim().isEmpty()) {
+                try {
+                    elapsed = Duration.ofMillis(Math.max(0, System.currentTimeMillis() - Long.parseLong(savedAt.trim())));
+                } catch (NumberFormatException e) {
+                    throw new InvalidSaveFormat();
+                }
+            }
+
+            // Restauration des usines
             for (String data : factoryData) {
                 if (!data.equals(" "))
-                    map.restoreFactory(data);
+                    map.restoreFactory(data, elapsed);
             }
 
             // Restauration des moissonneuses
-            String[] harvesterData = reader.readLine().split(";");
             for (String data : harvesterData) {
                 if (!data.equals(" "))
-                    map.restoreHarvester(data);
+                    map.restoreHarvester(data, elapsed);
+            }
+
+            // Restauration des crafts du joueur (absents des anciennes sauvegardes)
+            String craftSave = reader.readLine();
+            if (craftSave != null) {
+                for (String data : craftSave.split(";")) {
+                    if (!data.isEmpty())
+                        Timeline.addCraft(CraftOrder.restore(data, map.getPlayer().getInventory()));
+                }
             }
 
             // Fermeture du fichier après lecture
@@ -21,10 +21,20 @@ public class Task {
      */
     public Task(double time, Runnable task) {
         // Convertit le temps en secondes en fonction de l'intervalle de temps du jeu
-        this.time = (int) (time / (Math.pow(10, -3) * Timeline.getIntervale()));
+        this.time = toTicks(time);
         this.task = task;
     }
 
+    /**
+     * Convertit une durée en secondes en nombre de ticks de la timeline.
+     *
+     * @param seconds La durée en secondes.
+     * @return Le nombre de ticks correspondant (arrondi à l'inférieur).
+     */
+    public static int toTicks(double seconds) {
+        return (int) (seconds / (Math.pow(10, -3) * Timeline.getIntervale()));
+    }
+
     /**
      * Récupère l'action associée à la tâche.
      *
@@ -53,7 +63,7 @@ public class Task {
      */
     public void setTime(int time) {
         // Convertit le temps en secondes en fonction de l'intervalle de temps du jeu
-        this.time = (int) (time / (Math.pow(10, -3) * Timeline.getIntervale()));
+        this.time = toTicks(time);
     }
 
     /**
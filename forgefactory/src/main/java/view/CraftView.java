@@ -33,6 +33,10 @@ public class CraftView extends JPanel {
 
     // Carte contenant les boutons associés à chaque recette de fabrication
     private final HashMap<Recipe, JButton> craftingButtons;
+    // Carte contenant les boutons "Max" (fabriquer autant que possible) de chaque recette
+    private final HashMap<Recipe, JButton> craftMaxButtons;
+    // Avancement des commandes de fabrication en cours
+    private final JLabel progressLabel;
 
     /**
      * Constructeur de la vue CraftView.
@@ -43,6 +47,8 @@ public class CraftView extends JPanel {
     public CraftView() {
         // Initialisation des composants graphiques
         craftingButtons = new HashMap<>();
+        craftMaxButtons = new HashMap<>();
+        progressLabel = new JLabel(" ");
         inventorySubPane = new JPanel();
         craftSubPane = new JPanel();
         inventoryPane = new JScrollPane();
@@ -60,8 +66,12 @@ public class CraftView extends JPanel {
         craftPane.setViewportView(craftSubPane);
 
         // Ajouter les panneaux à la vue principale avec une disposition horizontale
+        JPanel rightPane = new JPanel();
+        rightPane.setLayout(new BoxLayout(rightPane, BoxLayout.Y_AXIS));
+        rightPane.add(craftPane);
+        rightPane.add(progressLabel);
         add(inventoryPane);
-        add(craftPane);
+        add(rightPane);
         setLayout(new BoxLayout(this, BoxLayout.X_AXIS));
 
         // Revalider et redessiner la vue
@@ -113,7 +123,7 @@ public class CraftView extends JPanel {
 
     /**
      * Crée et affiche les recettes de fabrication dans le panneau de fabrication.
-     * Pour chaque recette, un bouton "Craft" est ajouté.
+     * Pour chaque recette, un bouton "Craft" et un bouton "Max" sont ajoutés.
      */
     private void craftPane() {
         craftSubPane.removeAll(); // Nettoyer le panneau de recettes
@@ -126,9 +136,11 @@ public class CraftView extends JPanel {
             // Composants pour chaque ligne
             JLabel title = new JLabel(recette.toString());
             JButton craftButton = new JButton("Craft");
+            JButton craftMaxButton = new JButton("Max");
 
-            // Associer le bouton à la recette dans la carte
+            // Associer les boutons à la recette dans les cartes
             craftingButtons.put(recette, craftButton);
+            craftMaxButtons.put(recette, craftMaxButton);
 
             // Ajouter le label à la ligne
             gbc.gridx = 0;
@@ -140,12 +152,18 @@ public class CraftView extends JPanel {
 
             // Ajouter le bouton de fabrication
             gbc.gridx = 1;
-            gbc.weightx = 0.3; // 30% pour le bouton
+            gbc.weightx = 0.2; // 20% pour le bouton
             gbc.fill = GridBagConstraints.NONE;
             craftSubPane.add(craftButton, gbc);
 
-            // Appliquer un style au bouton
+            // Ajouter le bouton "Max"
+            gbc.gridx = 2;
+            gbc.weightx = 0.1; // 10% pour le bouton
+            craftSubPane.add(craftMaxButton, gbc);
+
+            // Appliquer un style aux boutons
             craftButton.setBorder(new LineBorder(Color.BLACK));
+            craftMaxButton.setBorder(new LineBorder(Color.BLACK));
         }
 
         // Revalider et redessiner le panneau
@@ -161,4 +179,22 @@ public class CraftView extends JPanel {
     public HashMap<Recipe, JButton> getButtons() {
         return this.craftingButtons;
     }
+
+    /**
+     * Retourne la carte des boutons "Max" associés aux recettes.
+     *
+     * @return La carte des boutons "Max", associée à chaque recette.
+     */
+    public HashMap<Recipe, JButton> getMaxButtons() {
+        return this.craftMaxButtons;
+    }
+
+    /**
+     * Affiche l'avancement des commandes de fabrication.
+     *
+     * @param progress Le texte à afficher.
+     */
+    public void setProgress(String progress) {
+        progressLabel.setText(progress);
+    }
 }
@@ -3,8 +3,10 @@ package main.java.view;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.util.LinkedList;
+import java.util.List;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import main.java.model.Inventory;
@@ -20,11 +22,14 @@ import main.java.model.util.Recipe;
  * gérer les actions disponibles pour la fabrication d'objets dans l'interface
  * utilisateur.
  * Chaque recette disponible dans la fabrique est associée à un bouton dans
- * l'interface.
+ * l'interface, et à une case "auto" qui l'ajoute à la liste de recettes que
+ * l'usine enchaîne toute seule.
  */
 public class FactoryView extends MachineView {
     // Liste des boutons associés aux recettes disponibles dans la fabrique
     private final LinkedList<Couple<Recipe, JButton>> button;
+    // Cases "auto" de chaque recette, pour la liste de recettes de l'usine
+    private final LinkedList<Couple<Recipe, JCheckBox>> autoBoxes;
 
     /**
      * Constructeur de la vue de la fabrique.
@@ -39,6 +44,7 @@ public class FactoryView extends MachineView {
     public FactoryView( Machine model, Inventory playerInventory) {
         super( model, playerInventory); // Appel du constructeur de la classe parente
         this.button = new LinkedList<>();
+        this.autoBoxes = new LinkedList<>();
         createActionPane(); // Crée et affiche les boutons d'actions de la fabrique
     }
 
@@ -62,7 +68,12 @@ public class FactoryView extends MachineView {
             // Ajoute le couple (recette, bouton) à la liste des boutons
             button.add(new Couple<>(DB.recipeMap.get(i), jtb));
 
+            JCheckBox auto = new JCheckBox("auto");
+            auto.setFocusable(false);
+            autoBoxes.add(new Couple<>(DB.recipeMap.get(i), auto));
+
             content.add(jtb); // Ajoute le bouton au panneau des actions
+            content.add(auto);
         }
         scrollPane.setViewportView(content);
         super.getActionsPane().add(scrollPane);
@@ -94,4 +105,27 @@ public class FactoryView extends MachineView {
     public LinkedList<Couple<Recipe, JButton>> getButtons() {
         return this.button;
     }
+
+    /**
+     * Retourne la liste des cases "auto" créées pour chaque recette.
+     *
+     * @return La liste des cases associées aux recettes
+     */
+    public LinkedList<Couple<Recipe, JCheckBox>> getAutoBoxes() {
+        return this.autoBoxes;
+    }
+
+    /**
+     * Affiche la liste de recettes de l'usine : les cases des recettes de la
+     * liste sont cochées et numérotées par priorité.
+     *
+     * @param recipes Les recettes de la liste, la plus prioritaire d'abord
+     */
+    public void showRecipeList(List<Recipe> recipes) {
+        for (Couple<Recipe, JCheckBox> couple : autoBoxes) {
+            int rank = recipes.indexOf(couple.getKey());
+            couple.getValue().setSelected(rank >= 0);
+            couple.getValue().setText(rank >= 0 ? "auto (" + (rank + 1) + ")" : "auto");
+        }
+    }
 }
@@ -65,7 +65,7 @@ public class GameView extends JPanel {
     private JLabel moneyLabel;
 
     // Utilitaires de construction
-    private Map.ResourceList[][] representativeMap; // Représentation de la carte sous forme de liste d'éléments
+    private Map map; // La carte, dont les cases sont lues au moment de les dessiner
 
     /**
      * Constructeur de la classe Game.
@@ -73,13 +73,13 @@ public class GameView extends JPanel {
      * ainsi que des contrôles pour l'interaction.
      * 
      * @param f                 La fenêtre principale du jeu
-     * @param representativeMap La carte représentant l'état du jeu
+     * @param map               La carte représentant l'état du jeu
      * @param b                 Vrai si la carte doit être restaurée, faux pour
      *                          générer une nouvelle carte
      */
-    public GameView(GUI f, Map.ResourceList[][] representativeMap, boolean b) {
+    public GameView(GUI f, Map map, boolean b) {
         this.frame = f;
-        this.representativeMap = representativeMap;
+        this.map = map;
         Value.game = this;
 
         this.rows = Value.rows; // Initialiser le nombre de lignes de la grille
@@ -221,8 +221,8 @@ public class GameView extends JPanel {
         for (int row = 0; row < rows; row++) {
             for (int col = 0; col < cols; col++) {
                 JLabel cell = new JLabel();
-                if (representativeMap[row][col] != ResourceList.SPAWN) {
-                    cell.setIcon(imageIconList[representativeMap[row][col].ordinal()]);
+                if (map.getCell(row, col) != ResourceList.SPAWN) {
+                    cell.setIcon(imageIconList[map.getCell(row, col).ordinal()]);
                 } else {
                     cell.setIcon(PLAYERImg);
                 }
@@ -261,7 +261,7 @@ public class GameView extends JPanel {
         // Réinitialiser l'icône de la cellule à son état initial selon la carte de
         // représentation.
         cellTab[pos.getRow()][pos.getCol()]
-                .setIcon(imageIconList[representativeMap[pos.getRow()][pos.getCol()].ordinal()]);
+                .setIcon(imageIconList[map.getCell(pos.getRow(), pos.getCol()).ordinal()]);
 
         // Vérifier si la collecte est terminée (en fonction de l'augmentation de la
         // hauteur ou de la baisse de la hauteur).
@@ -269,7 +269,7 @@ public class GameView extends JPanel {
             // Si la collecte est terminée, réinitialiser l'icône (elle ne sera plus
             // inutilisable).
             cellTab[pos.getRow()][pos.getCol()]
-                    .setIcon(imageIconList[representativeMap[pos.getRow()][pos.getCol()].ordinal()]);
+                    .setIcon(imageIconList[map.getCell(pos.getRow(), pos.getCol()).ordinal()]);
         } else {
             // Si la collecte n'est pas terminée, assombrir l'image pour marquer la cellule
             // comme inutilisable.
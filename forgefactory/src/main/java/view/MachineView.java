@@ -10,6 +10,8 @@ import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.JTabbedPane;
 import main.java.model.Enum.BonusMachine;
 import main.java.model.Inventory;
@@ -46,6 +48,10 @@ public abstract class MachineView extends JPanel {
     private JButton repaireButton;
     private JButton polyvalenteButton;
 
+    // Transferts groupés entre le joueur et la machine
+    private JSpinner transferQuantity; // Le nombre N d'objets des boutons put N / get N
+    private JButton takeAllButton; // Bouton pour vider toute la machine dans l'inventaire du joueur
+
     // Objets du modèle
     private final Machine model; // Modèle associé à la machine
     private final Inventory playerInventory; // Inventaire du joueur
@@ -149,6 +155,16 @@ public abstract class MachineView extends JPanel {
 
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
 
+        // Ligne des transferts groupés : quantité N et "tout prendre"
+        JPanel bulkPane = new JPanel();
+        this.transferQuantity = new JSpinner(new SpinnerNumberModel(1, 1, Integer.MAX_VALUE, 1));
+        this.takeAllButton = new JButton("take all");
+        bulkPane.add(new JLabel("N = "));
+        bulkPane.add(this.transferQuantity);
+        bulkPane.add(this.takeAllButton);
+        bulkPane.setMaximumSize(new Dimension(Integer.MAX_VALUE, 75));
+        panel.add(bulkPane);
+
         inventory.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
         inventory.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
 
@@ -303,6 +319,17 @@ public abstract class MachineView extends JPanel {
         return this.polyvalenteButton;
     }
 
+    public JButton getTakeAllButton() {
+        return this.takeAllButton;
+    }
+
+    /**
+     * @return le nombre N d'objets choisi pour les boutons put N / get N
+     */
+    public int getTransferQuantity() {
+        return (Integer) this.transferQuantity.getValue();
+    }
+
     public JPanel getActionsPane() {
         return this.actionsPane;
     }